@@ -0,0 +1,56 @@
+package mpstyle.jcontainer.benchmark;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the singleton hit benchmarks with the GC profiler and exits with status 1 if any of them allocates: a warm hit
+ * must not allocate (gc.alloc.rate.norm below 1 byte per operation, leaving room for the noise of the profiler).
+ */
+public class AllocationCheck {
+  private static final double MAX_BYTES_PER_OPERATION = 1.0;
+  private static final String ALLOCATION_RATE = "gc.alloc.rate.norm";
+  // Older JMH versions prefix the results of the profilers with a middle dot
+  private static final String LEGACY_ALLOCATION_RATE = "\u00b7" + ALLOCATION_RATE;
+
+  public static void main(String[] args) throws Exception {
+    Collection<RunResult> results = new Runner(new OptionsBuilder()
+        .include(ResolutionBenchmark.class.getSimpleName() + "\\.(singletonHit|instanceHit|frozenSingletonHit)$")
+        .addProfiler(GCProfiler.class)
+        .warmupIterations(3)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(3)
+        .measurementTime(TimeValue.seconds(1))
+        .forks(1)
+        .build()).run();
+
+    boolean allocates = false;
+
+    for (RunResult result : results) {
+      String benchmark = result.getParams().getBenchmark();
+      Result<?> allocation = result.getSecondaryResults().get(ALLOCATION_RATE);
+
+      if (allocation == null) {
+        allocation = result.getSecondaryResults().get(LEGACY_ALLOCATION_RATE);
+      }
+
+      if (allocation == null) {
+        System.err.println("No allocation rate for " + benchmark);
+        allocates = true;
+      } else if (allocation.getScore() > MAX_BYTES_PER_OPERATION) {
+        System.err.printf("%s allocates %.2f bytes per operation%n", benchmark, allocation.getScore());
+        allocates = true;
+      } else {
+        System.out.printf("%s: %.2f bytes per operation%n", benchmark, allocation.getScore());
+      }
+    }
+
+    System.exit(allocates ? 1 : 0);
+  }
+}
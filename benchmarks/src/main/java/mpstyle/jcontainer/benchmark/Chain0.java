@@ -0,0 +1,4 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain0 {
+}
@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain1 {
+  private final Chain0 previous;
+
+  public Chain1(Chain0 previous) {
+    this.previous = previous;
+  }
+}
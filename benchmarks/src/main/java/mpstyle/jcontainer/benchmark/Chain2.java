@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain2 {
+  private final Chain1 previous;
+
+  public Chain2(Chain1 previous) {
+    this.previous = previous;
+  }
+}
@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain3 {
+  private final Chain2 previous;
+
+  public Chain3(Chain2 previous) {
+    this.previous = previous;
+  }
+}
@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain4 {
+  private final Chain3 previous;
+
+  public Chain4(Chain3 previous) {
+    this.previous = previous;
+  }
+}
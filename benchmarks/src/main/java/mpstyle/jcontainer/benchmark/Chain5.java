@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain5 {
+  private final Chain4 previous;
+
+  public Chain5(Chain4 previous) {
+    this.previous = previous;
+  }
+}
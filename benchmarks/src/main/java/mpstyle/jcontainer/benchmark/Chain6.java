@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain6 {
+  private final Chain5 previous;
+
+  public Chain6(Chain5 previous) {
+    this.previous = previous;
+  }
+}
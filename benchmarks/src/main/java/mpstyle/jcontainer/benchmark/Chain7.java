@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain7 {
+  private final Chain6 previous;
+
+  public Chain7(Chain6 previous) {
+    this.previous = previous;
+  }
+}
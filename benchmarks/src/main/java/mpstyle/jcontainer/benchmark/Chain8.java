@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain8 {
+  private final Chain7 previous;
+
+  public Chain8(Chain7 previous) {
+    this.previous = previous;
+  }
+}
@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.benchmark;
+
+public class Chain9 {
+  private final Chain8 previous;
+
+  public Chain9(Chain8 previous) {
+    this.previous = previous;
+  }
+}
@@ -0,0 +1,48 @@
+package mpstyle.jcontainer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import mpstyle.jcontainer.Container;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many threads resolving the same key of a shared container.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+  private Container container;
+
+  @Setup
+  public void setUp() {
+    container = new Container(false);
+    container.addDefinition(Leaf.class);
+    container.addDefinition(Handler.class, false);
+    container.get(Leaf.class);
+  }
+
+  @Benchmark
+  public Leaf singletonHit() {
+    return container.get(Leaf.class);
+  }
+
+  @Benchmark
+  public Handler prototype() {
+    return container.get(Handler.class);
+  }
+}
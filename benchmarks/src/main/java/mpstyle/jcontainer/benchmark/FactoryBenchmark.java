@@ -0,0 +1,46 @@
+package mpstyle.jcontainer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import mpstyle.jcontainer.Container;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the reflective path with the compiled factories on a prototype definition which uses both constructor and
+ * field injection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FactoryBenchmark {
+  @Param({"false", "true"})
+  public boolean compiledFactories;
+
+  private Container container;
+
+  @Setup
+  public void setUp() {
+    container = new Container().setCompiledFactories(compiledFactories);
+    container.addDefinition(Handler.class, false);
+    container.addDefinition(Leaf.class);
+    container.get(Handler.class);
+  }
+
+  @Benchmark
+  public Handler prototypeGet() {
+    return container.get(Handler.class);
+  }
+}
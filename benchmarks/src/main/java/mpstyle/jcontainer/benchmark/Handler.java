@@ -0,0 +1,22 @@
+package mpstyle.jcontainer.benchmark;
+
+import mpstyle.jcontainer.annotation.Inject;
+
+public class Handler {
+  private final Leaf leaf;
+
+  @Inject
+  private Leaf injected;
+
+  public Handler(Leaf leaf) {
+    this.leaf = leaf;
+  }
+
+  public Leaf getLeaf() {
+    return leaf;
+  }
+
+  public Leaf getInjected() {
+    return injected;
+  }
+}
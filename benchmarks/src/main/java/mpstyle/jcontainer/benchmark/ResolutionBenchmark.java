@@ -0,0 +1,120 @@
+package mpstyle.jcontainer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import mpstyle.jcontainer.Closure;
+import mpstyle.jcontainer.Container;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single thread resolution paths of the container.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolutionBenchmark {
+  private Container container;
+  private Container frozen;
+
+  @Setup
+  public void setUp() {
+    container = new Container(false);
+    container.addDefinition(Leaf.class);
+    container.addDefinition(Handler.class, false);
+    container.addDefinition(Chain0.class, false);
+    container.addDefinition(Chain1.class, false);
+    container.addDefinition(Chain2.class, false);
+    container.addDefinition(Chain3.class, false);
+    container.addDefinition(Chain4.class, false);
+    container.addDefinition(Chain5.class, false);
+    container.addDefinition(Chain6.class, false);
+    container.addDefinition(Chain7.class, false);
+    container.addDefinition(Chain8.class, false);
+    container.addDefinition(Chain9.class, false);
+    container.addClosure(ClosureClassKey.class, ClosureClassKey.Builder.class, false);
+    container.addClosure(ClosureInstanceKey.class, new Closure<ClosureInstanceKey>() {
+      public ClosureInstanceKey call() {
+        return new ClosureInstanceKey();
+      }
+    }, false);
+
+    container.addInstance(InstanceKey.class, new InstanceKey());
+
+    container.get(Leaf.class);
+    container.get(Handler.class);
+    container.get(Chain9.class);
+
+    Container source = new Container(false);
+    source.addDefinition(Leaf.class);
+    frozen = source.freeze();
+  }
+
+  @Benchmark
+  public Leaf singletonHit() {
+    return container.get(Leaf.class);
+  }
+
+  @Benchmark
+  public InstanceKey instanceHit() {
+    return container.get(InstanceKey.class);
+  }
+
+  @Benchmark
+  public Leaf frozenSingletonHit() {
+    return frozen.get(Leaf.class);
+  }
+
+  @Benchmark
+  public Handler prototype() {
+    return container.get(Handler.class);
+  }
+
+  @Benchmark
+  public Chain9 deepChain() {
+    return container.get(Chain9.class);
+  }
+
+  @Benchmark
+  public ClosureClassKey closureClass() {
+    return container.get(ClosureClassKey.class);
+  }
+
+  @Benchmark
+  public ClosureInstanceKey closureInstance() {
+    return container.get(ClosureInstanceKey.class);
+  }
+
+  /**
+   * The first get() of a class without definition: the container registers and builds it.
+   */
+  @Benchmark
+  public Leaf autoInstanceMiss() {
+    return new Container().get(Leaf.class);
+  }
+
+  public static class ClosureClassKey {
+    public static class Builder implements Closure<ClosureClassKey> {
+      public ClosureClassKey call() {
+        return new ClosureClassKey();
+      }
+    }
+  }
+
+  public static class ClosureInstanceKey {
+  }
+
+  public static class InstanceKey {
+  }
+}
@@ -0,0 +1,73 @@
+package mpstyle.jcontainer.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import mpstyle.jcontainer.Container;
+import mpstyle.jcontainer.IniContainer;
+import mpstyle.jcontainer.YamlContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cold start of a container from the YAML and INI files, until the first resolution of the deepest definition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+  private static final Class<?>[] DEFINITIONS = {
+      Leaf.class, Handler.class, Chain0.class, Chain1.class, Chain2.class, Chain3.class, Chain4.class, Chain5.class,
+      Chain6.class, Chain7.class, Chain8.class, Chain9.class
+  };
+
+  private File yaml;
+  private File ini;
+
+  @Setup
+  public void setUp() throws IOException {
+    yaml = File.createTempFile("definitions", ".yml");
+    ini = File.createTempFile("definitions", ".ini");
+
+    try (PrintWriter yamlWriter = new PrintWriter(yaml, "UTF-8"); PrintWriter iniWriter = new PrintWriter(ini, "UTF-8")) {
+      iniWriter.println("[definitions]");
+
+      for (Class<?> definition : DEFINITIONS) {
+        yamlWriter.println(definition.getName() + ": " + definition.getName());
+        iniWriter.println(definition.getName() + " = " + definition.getName());
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    yaml.delete();
+    ini.delete();
+  }
+
+  @Benchmark
+  public Chain9 yaml() {
+    Container container = YamlContainer.from(yaml);
+    return container.get(Chain9.class);
+  }
+
+  @Benchmark
+  public Chain9 ini() {
+    Container container = IniContainer.from(ini);
+    return container.get(Chain9.class);
+  }
+}
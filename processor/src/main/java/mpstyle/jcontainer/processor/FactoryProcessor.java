@@ -0,0 +1,289 @@
+package mpstyle.jcontainer.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import mpstyle.jcontainer.Closure;
+import mpstyle.jcontainer.Factory;
+import mpstyle.jcontainer.annotation.Inject;
+import mpstyle.jcontainer.annotation.Lazy;
+
+/**
+ * Generates a {@link Factory} for each class with a constructor or a field marked by {@link Inject}, so the
+ * {@link mpstyle.jcontainer.Container} can build it without reflection.<br />
+ * The factory uses the constructor marked by {@link Inject} or, if there isn't one, the only non private constructor.
+ * A class which can't be built from its package (a private class or constructor, an inner class, a private or final
+ * injectable field) or which has several constructors is reported with a warning and left to the reflection of the
+ * container.<br />
+ * The classes with a factory are listed in the {@link Factory#INDEX} resource, so the container doesn't look for the
+ * factories of the other classes.
+ */
+@SupportedAnnotationTypes("mpstyle.jcontainer.annotation.Inject")
+public class FactoryProcessor extends AbstractProcessor {
+    // The binary names of the classes with a factory, written to the index in the last round
+    private final Set<String> generated = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<TypeElement>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(Inject.class)) {
+            if (element.getEnclosingElement() instanceof TypeElement) {
+                types.add((TypeElement) element.getEnclosingElement());
+            }
+        }
+
+        for (TypeElement type : types) {
+            generate(type);
+        }
+
+        if (roundEnv.processingOver() && !generated.isEmpty()) {
+            try {
+                writeIndex();
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the factory index: " + e.getMessage());
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the {@link Factory#INDEX}, keeping the classes listed by a previous compilation of the module: an
+     * incremental build processes only the changed classes. A class which doesn't exist anymore is ignored by the
+     * container.
+     */
+    private void writeIndex() throws IOException {
+        Set<String> names = new TreeSet<String>(generated);
+
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", Factory.INDEX);
+            BufferedReader reader = new BufferedReader(existing.openReader(true));
+
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.trim().isEmpty()) {
+                        names.add(line.trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // There isn't a previous index
+        }
+
+        FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Factory.INDEX);
+        Writer writer = index.openWriter();
+
+        try {
+            for (String name : names) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void generate(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            warning(type, "it is not a concrete class");
+            return;
+        }
+
+        for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+            TypeElement enclosing = (TypeElement) element;
+
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                warning(type, "it is private");
+                return;
+            }
+
+            if (enclosing.getNestingKind() == NestingKind.MEMBER && !enclosing.getModifiers().contains(Modifier.STATIC)) {
+                warning(type, "it is an inner class");
+                return;
+            }
+
+            if (enclosing.getNestingKind() == NestingKind.LOCAL || enclosing.getNestingKind() == NestingKind.ANONYMOUS) {
+                return;
+            }
+        }
+
+        ExecutableElement constructor = findConstructor(type);
+
+        if (constructor == null) {
+            warning(type, "it has not a non private constructor marked by @Inject or a single non private constructor");
+            return;
+        }
+
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getAnnotation(Inject.class) != null) {
+                if (field.getModifiers().contains(Modifier.PRIVATE) || field.getModifiers().contains(Modifier.FINAL)) {
+                    warning(type, "the field " + field.getSimpleName() + " is private or final");
+                    return;
+                }
+
+                fields.add(field);
+            }
+        }
+
+        try {
+            write(type, constructor, fields);
+            generated.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write the factory: " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * @return The constructor marked by {@link Inject} or, without it, the only non private constructor. With several
+     * constructors the container tries them until one succeeds, so the class is left to reflection.
+     */
+    private ExecutableElement findConstructor(TypeElement type) {
+        ExecutableElement single = null;
+        int count = 0;
+
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getAnnotation(Inject.class) != null) {
+                return constructor.getModifiers().contains(Modifier.PRIVATE) ? null : constructor;
+            }
+
+            if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                single = constructor;
+                count++;
+            }
+        }
+
+        return count == 1 ? single : null;
+    }
+
+    private void write(TypeElement type, ExecutableElement constructor, List<VariableElement> fields) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String factoryName = Factory.nameOf(processingEnv.getElementUtils().getBinaryName(type).toString());
+        String simpleName = packageName.isEmpty() ? factoryName : factoryName.substring(packageName.length() + 1);
+        String typeName = erasure(type);
+
+        StringBuilder source = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("// Generated by jcontainer-processor, do not edit.\n");
+        source.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+        source.append("public final class ").append(simpleName)
+                .append(" implements mpstyle.jcontainer.Factory<").append(typeName).append("> {\n");
+        source.append("    @Override\n");
+        source.append("    public ").append(typeName).append(" create(mpstyle.jcontainer.Container container) {\n");
+        source.append("        ").append(typeName).append(" instance = new ").append(typeName).append("(");
+
+        List<? extends VariableElement> parameters = constructor.getParameters();
+
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                source.append(", ");
+            }
+
+            source.append(resolve(parameters.get(i)));
+        }
+
+        source.append(");\n");
+
+        for (VariableElement field : fields) {
+            source.append("        instance.").append(field.getSimpleName())
+                    .append(" = ").append(resolve(field)).append(";\n");
+        }
+
+        source.append("        return instance;\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        Writer writer = processingEnv.getFiler().createSourceFile(factoryName, type).openWriter();
+
+        try {
+            writer.write(source.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return The expression which resolves the parameter or the field: a <i>Closure&lt;T&gt;</i> is resolved lazily by
+     * {@link mpstyle.jcontainer.Container#getProvider(Class)}, a field marked by {@link Lazy} by
+     * {@link mpstyle.jcontainer.Container#getLazy(Class)}.
+     */
+    private String resolve(VariableElement element) {
+        TypeMirror type = element.asType();
+
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType) type;
+            TypeElement typeElement = (TypeElement) declared.asElement();
+
+            if (typeElement.getQualifiedName().contentEquals(Closure.class.getName()) && declared.getTypeArguments().size() == 1) {
+                TypeMirror argument = declared.getTypeArguments().get(0);
+
+                if (argument.getKind() == TypeKind.WILDCARD && ((WildcardType) argument).getExtendsBound() != null) {
+                    argument = ((WildcardType) argument).getExtendsBound();
+                }
+
+                if (argument.getKind() == TypeKind.DECLARED) {
+                    return "container.getProvider(" + erasure(argument) + ".class)";
+                }
+            }
+        }
+
+        if (element.getAnnotation(Lazy.class) != null) {
+            return "container.getLazy(" + erasure(type) + ".class)";
+        }
+
+        return "container.get(" + erasure(type) + ".class)";
+    }
+
+    private String erasure(Element element) {
+        return erasure(element.asType());
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private void warning(TypeElement type, String reason) {
+        processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.WARNING,
+                "No factory generated for " + type.getQualifiedName() + ": " + reason + ", the container will use reflection",
+                type);
+    }
+}
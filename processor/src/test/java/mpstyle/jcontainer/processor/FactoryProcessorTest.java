@@ -0,0 +1,122 @@
+package mpstyle.jcontainer.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import mpstyle.jcontainer.Closure;
+import mpstyle.jcontainer.Container;
+import mpstyle.jcontainer.Factory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FactoryProcessorTest {
+    @Test
+    public void generate() throws Exception {
+        Path root = Files.createTempDirectory("jcontainer-processor");
+        Path sources = Files.createDirectories(root.resolve("src/sample"));
+        Path classes = Files.createDirectories(root.resolve("classes"));
+
+        write(sources.resolve("Engine.java"),
+                "package sample;\n"
+                        + "public class Engine {\n"
+                        + "}\n");
+        write(sources.resolve("Car.java"),
+                "package sample;\n"
+                        + "import mpstyle.jcontainer.annotation.Inject;\n"
+                        + "public class Car {\n"
+                        + "  public final Engine engine;\n"
+                        + "  @Inject public Engine spare;\n"
+                        + "  @Inject public mpstyle.jcontainer.Closure<Engine> provider;\n"
+                        + "  @Inject @mpstyle.jcontainer.annotation.Lazy public Runnable task;\n"
+                        + "  public Car() { throw new IllegalStateException(); }\n"
+                        + "  @Inject public Car(Engine engine) { this.engine = engine; }\n"
+                        + "}\n");
+        write(sources.resolve("Hidden.java"),
+                "package sample;\n"
+                        + "import mpstyle.jcontainer.annotation.Inject;\n"
+                        + "public class Hidden {\n"
+                        + "  @Inject private Engine engine;\n"
+                        + "  public Engine getEngine() { return engine; }\n"
+                        + "}\n");
+
+        write(sources.resolve("Truck.java"),
+                "package sample;\n"
+                        + "import mpstyle.jcontainer.annotation.Inject;\n"
+                        + "public class Truck {\n"
+                        + "  @Inject public Engine spare;\n"
+                        + "  public Truck(Runnable task) { }\n"
+                        + "  public Truck() { }\n"
+                        + "}\n");
+
+        compile(classes, sources.resolve("Engine.java"), sources.resolve("Car.java"), sources.resolve("Hidden.java"), sources.resolve("Truck.java"));
+
+        assertTrue(Files.exists(classes.resolve("sample/Car" + Factory.SUFFIX + ".class")));
+        assertFalse(Files.exists(classes.resolve("sample/Hidden" + Factory.SUFFIX + ".class")));
+        // Several constructors without @Inject: the container chooses one by reflection
+        assertFalse(Files.exists(classes.resolve("sample/Truck" + Factory.SUFFIX + ".class")));
+        // The container looks only for the factories of the classes in the index
+        assertEquals(Collections.singletonList("sample.Car"), Files.readAllLines(classes.resolve(Factory.INDEX), StandardCharsets.UTF_8));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> car = loader.loadClass("sample.Car");
+            Class<?> engine = loader.loadClass("sample.Engine");
+            Container c = new Container();
+
+            Factory<?> factory = (Factory<?>) loader.loadClass("sample.Car" + Factory.SUFFIX).getDeclaredConstructor().newInstance();
+            Object created = factory.create(c);
+            assertSame(c.get(engine), car.getField("engine").get(created));
+
+            Object instance = c.get(car);
+            assertSame(c.get(engine), car.getField("engine").get(instance));
+            assertSame(c.get(engine), car.getField("spare").get(instance));
+            assertSame(c.get(engine), ((Closure<?>) car.getField("provider").get(instance)).call());
+            assertNotNull(car.getField("task").get(instance));
+
+            Object truck = c.get(loader.loadClass("sample.Truck"));
+            assertNotNull(truck.getClass().getField("spare").get(truck));
+
+            Object hidden = c.get(loader.loadClass("sample.Hidden"));
+            assertNotNull(hidden.getClass().getMethod("getEngine").invoke(hidden));
+        }
+    }
+
+    private static void write(Path path, String source) throws IOException {
+        Files.write(path, source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void compile(Path classes, Path... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = new File(Container.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+        List<File> files = Arrays.stream(sources).map(Path::toFile).collect(Collectors.toList());
+
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    fileManager,
+                    null,
+                    Arrays.asList("-classpath", classpath, "-d", classes.toString(), "-s", classes.toString()),
+                    null,
+                    fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new FactoryProcessor()));
+
+            assertTrue(task.call());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package mpstyle.jcontainer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+
+/**
+ * A factory compiled from a {@link ResolutionPlan}: the chosen constructor and the setters of the fields marked by
+ * {@link mpstyle.jcontainer.annotation.Inject} are bound once to {@link MethodHandle}s, so building an instance
+ * doesn't pay the access checks of {@link Constructor#newInstance(Object...)} and {@link Field#set(Object, Object)}.
+ *
+ * @param <T> The type of the class to instantiate
+ */
+final class CompiledFactory<T> {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle constructor;
+    private final Dependency[] parameters;
+    private final MethodHandle[] setters;
+    private final Dependency[] fields;
+
+    private CompiledFactory(MethodHandle constructor, Dependency[] parameters, MethodHandle[] setters, Dependency[] fields) {
+        this.constructor = constructor;
+        this.parameters = parameters;
+        this.setters = setters;
+        this.fields = fields;
+    }
+
+    /**
+     * Compiles the constructor at <i>index</i> and the injectable fields of the <i>plan</i>.
+     *
+     * @throws IllegalAccessException if a member can not be bound to a {@link MethodHandle}, for example a final field
+     */
+    static <T> CompiledFactory<T> compile(ResolutionPlan<T> plan, int index) throws IllegalAccessException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Dependency[] parameters = plan.getParameters(index);
+        MethodHandle constructor = lookup.unreflectConstructor(plan.getConstructor(index))
+                .asSpreader(Object[].class, parameters.length)
+                .asType(CONSTRUCTOR_TYPE);
+
+        Field[] fields = plan.getInjectableFields();
+        MethodHandle[] setters = new MethodHandle[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            setters[i] = lookup.unreflectSetter(fields[i]).asType(SETTER_TYPE);
+        }
+
+        return new CompiledFactory<T>(constructor, parameters, setters, plan.getFieldDependencies());
+    }
+
+    /**
+     * Builds an instance resolving the constructor parameters and the injectable fields through the <i>container</i>.
+     */
+    @SuppressWarnings("unchecked")
+    T create(Container container) throws Throwable {
+        Object[] values = new Object[parameters.length];
+
+        for (int i = 0; i < parameters.length; i++) {
+            values[i] = container.getDependency(parameters[i]);
+        }
+
+        Object instance = (Object) constructor.invokeExact(values);
+
+        for (int i = 0; i < setters.length; i++) {
+            setters[i].invokeExact(instance, container.getDependency(fields[i]));
+        }
+
+        return (T) instance;
+    }
+}
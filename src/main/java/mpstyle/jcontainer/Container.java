@@ -2,15 +2,59 @@ package mpstyle.jcontainer;
 
 import static java.lang.String.format;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
-import mpstyle.jcontainer.annotation.Inject;
+import mpstyle.jcontainer.scope.Scope;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -21,8 +65,28 @@ import org.apache.logging.log4j.Logger;
  */
 public class Container {
     private final static Logger LOGGER = LogManager.getRootLogger();
-    private final Map<String, InjectableObjectProps> injectableObjects = new ConcurrentHashMap<String, InjectableObjectProps>();
+    // The classes with a generated factory by class loader, see Factory#INDEX: weak keys don't keep the loaders alive
+    private static final Map<ClassLoader, Set<String>> FACTORY_INDEXES = Collections.synchronizedMap(new WeakHashMap<ClassLoader, Set<String>>());
+    // Keyed by class identity: Class doesn't override equals and hashCode, so a lookup doesn't build any name and classes
+    // with the same name loaded by different class loaders (or anonymous and local classes) don't collide.
+    // Replaced as a whole by updateDefinitions(), so a lookup reads it once and sees a consistent registry.
+    private volatile ConcurrentHashMap<Class<?>, InjectableObjectProps> injectableObjects = new ConcurrentHashMap<Class<?>, InjectableObjectProps>();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final ConcurrentHashMap<Class<?>, MultiBinding> multiBindings = new ConcurrentHashMap<Class<?>, MultiBinding>();
+    // The keys without a definition which can't be resolved, with the exception to throw again: a definition of the key
+    // is always found before, so a registration doesn't need to remove it.
+    private final ConcurrentHashMap<Class<?>, Unresolvable> unresolvable = new ConcurrentHashMap<Class<?>, Unresolvable>();
+    // Counts the registrations: a key whose dependencies couldn't be resolved is remembered only until the next one
+    private final AtomicLong registrations = new AtomicLong();
+    // Counts the singletons built: a singleton is always completed after the singletons it depends on
+    private final AtomicLong completions = new AtomicLong();
     private final boolean autoInstance;
+    // Not null only in the snapshot returned by freeze(): it is never modified after the construction.
+    private final IdentityHashMap<Class<?>, FrozenSlot> frozenSlots;
+    private final Container parent;
+    private volatile boolean frozen;
+    private boolean compiledFactories;
+    private ResolutionListener listener;
 
     /**
      * Create a container with autoInstance set to <i>true</i>.
@@ -37,291 +101,2306 @@ public class Container {
      * @param autoInstance Sets the autoInstance property
      */
     public Container(boolean autoInstance) {
-        this.autoInstance = autoInstance;
+        this(autoInstance, null, null);
     }
 
-    /**
-     * Removes all defined instances and definitions.
-     */
-    public void clear() {
-        injectableObjects.clear();
+    private Container(boolean autoInstance, IdentityHashMap<Class<?>, FrozenSlot> frozenSlots, Container parent) {
+        this.autoInstance = autoInstance;
+        this.frozenSlots = frozenSlots;
+        this.frozen = frozenSlots != null;
+        this.parent = parent;
     }
 
     /**
-     * Add a class definition
+     * Creates a child container, for example to override some definitions for a tenant or a test.<br />
+     * The child doesn't copy anything: it keeps only its own definitions and, when a key is missing, it uses the
+     * definition of its parent. A definition of the parent is resolved by the parent, so its singletons are shared with
+     * the child and its dependencies are not affected by the overrides of the child. If <i>autoInstance</i> is true, the
+     * classes without a definition in the whole hierarchy are registered in the child, so discarding the child releases
+     * only the objects it created.
      *
-     * @param key
-     * @param clazz
-     * @param <T>
+     * @return The child container
      */
-    public <T> Container addDefinition(final Class<T> key, final Class<? extends T> clazz) {
-        return this.addDefinition(key, clazz, true);
+    public Container createChild() {
+        return new Container(autoInstance, null, this);
     }
 
-    public <T> Container addDefinition(final Class<T> clazz) {
-        return this.addDefinition(clazz, clazz, true);
+    /**
+     * @return true if the container instantiates the classes without a definition
+     */
+    public boolean isAutoInstance() {
+        return autoInstance;
     }
 
-    public <T> Container addDefinition(final Class<T> clazz, boolean isSingleton) {
-        return this.addDefinition(clazz, clazz, isSingleton);
+    /**
+     * @return The parent container, or null if this is not a child container, see {@link #createChild()}
+     */
+    public Container getParent() {
+        return parent;
     }
 
-    public <T> Container addDefinition(final Class<T> key, final Class<? extends T> clazz, boolean isSingleton) {
-        injectableObjects.put(
-                key.getCanonicalName(),
-                new InjectableObjectProps()
-                        .setBuilder(new Closure<T>() {
-                            public T call() {
-                                T instance = getInstanceByClass(clazz);
-
-                                // Don't move this "for" into {#link #getInstanceByClass} method, because it could permit to use Inject
-                                // annotation in the Callable
-                                for (Field field : clazz.getDeclaredFields()) {
-                                    if (field.getAnnotation(Inject.class) != null) {
-
-                                        field.setAccessible(true);
-
-                                        try {
-                                            field.set(instance, get(field.getType()));
-                                        } catch (IllegalAccessException e) {
-                                            // It is impossible to set the object market with @Inject
-                                            LOGGER.debug(e);
-                                        }
-                                    }
-                                }
-
-                                return instance;
-                            }
-                        })
-                        .setSingleton(isSingleton));
-
+    /**
+     * Enables or disables the compiled factories: when enabled, the definitions are instantiated through
+     * {@link java.lang.invoke.MethodHandle}s bound to the constructor which succeeded the first time and to the setters of
+     * the fields marked by {@link mpstyle.jcontainer.annotation.Inject}, instead of reflection.<br />
+     * Set it before sharing the container between threads.
+     *
+     * @param compiledFactories Sets the compiledFactories property
+     */
+    public Container setCompiledFactories(boolean compiledFactories) {
+        this.compiledFactories = compiledFactories;
         return this;
     }
 
     /**
-     * Add an instance of a <i>T</i>.
+     * Sets the listener which receives the events of the resolutions, for example a
+     * {@link mpstyle.jcontainer.metrics.ResolutionMetrics}. Without a listener, the container doesn't measure anything.
+     * <br />
+     * A singleton hit is reported by the container which is asked for it, a construction by the container which owns the
+     * definition (a parent, for the inherited definitions). Set it before sharing the container between threads.
      *
-     * @param key
-     * @param obj
-     * @param <T>
+     * @param listener The listener, or null to remove it
      */
-    public <T> Container addInstance(Class<T> key, final T obj) {
-        InjectableObjectProps props = new InjectableObjectProps()
-                .setBuilder(new Closure<T>() {
-                    public T call() {
-                        return obj;
-                    }
-                })
-                .setSingleton(true);
-
-        injectableObjects.put(key.getCanonicalName(), props);
-
+    public Container setResolutionListener(ResolutionListener listener) {
+        this.listener = listener;
         return this;
     }
 
-    public <T> Container addInstance(final T obj) {
-        return this.addInstance((Class<T>)obj.getClass(), obj);
+    /**
+     * Removes all defined instances and definitions, and forgets the keys found unresolvable.
+     */
+    public void clear() {
+        checkNotFrozen();
+        updateLock.lock();
+
+        try {
+            injectableObjects.clear();
+            unresolvable.clear();
+            registrations.incrementAndGet();
+        } finally {
+            updateLock.unlock();
+        }
+
+        multiBindings.clear();
     }
 
     /**
-     * Add a {@link Closure} class to the container.
+     * Ends the configuration of the container and returns a read-only snapshot of it.<br />
+     * If <i>autoInstance</i> is true, the concrete classes required by the constructors and by the fields marked by
+     * {@link mpstyle.jcontainer.annotation.Inject} of the definitions are registered first. Then every singleton is
+     * built, so the snapshot can keep it in a final field, and the definitions are copied in an identity map which is
+     * never modified later: a lookup doesn't need any volatile read or CAS.<br />
+     * After the freeze, both this container and the snapshot throw an {@link IllegalStateException} from every
+     * registration method, and they don't instantiate the classes without a definition anymore.
      *
-     * @param key
-     * @param closure
-     * @param <T>
+     * @return The frozen container
      */
-    public <T> Container addClosure(final Class<T> key, final Class<? extends Closure<T>> closure) {
-        return this.addClosure(key, closure, true);
-    }
+    public Container freeze() {
+        checkNotFrozen();
 
-    public <T> Container addClosure(final Class<T> key, final Class<? extends Closure<T>> closure, boolean isSingleton) {
-        InjectableObjectProps props = new InjectableObjectProps()
-                .setBuilder(new Closure<T>() {
-                    public T call() {
-                        try {
-                            return getInstanceByClass(closure).call();
-                        } catch (Exception e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-                })
-                .setSingleton(isSingleton);
+        if (autoInstance) {
+            addImplicitDefinitions();
+        }
+
+        for (InjectableObjectProps props : injectableObjects.values()) {
+            if (props.isSingleton()) {
+                try {
+                    props.getInstance();
+                } catch (Exception e) {
+                    // The singleton will be built on the first get(), reporting the error to the caller
+                    LOGGER.debug(e);
+                }
+            }
+        }
 
-        injectableObjects.put(key.getCanonicalName(), props);
+        frozen = true;
 
-        return this;
+        IdentityHashMap<Class<?>, FrozenSlot> slots = new IdentityHashMap<Class<?>, FrozenSlot>(injectableObjects.size());
+
+        for (Map.Entry<Class<?>, InjectableObjectProps> entry : injectableObjects.entrySet()) {
+            slots.put(entry.getKey(), new FrozenSlot(entry.getValue()));
+        }
+
+        for (Class<?> key : multiBindings.keySet()) {
+            try {
+                getAll(key);
+            } catch (Exception e) {
+                LOGGER.debug(e);
+            }
+        }
+
+        Container snapshot = new Container(false, slots, parent);
+        snapshot.listener = listener;
+        snapshot.multiBindings.putAll(multiBindings);
+
+        return snapshot;
     }
 
     /**
-     * Add a {@link Closure} instance to the container.
+     * Eagerly builds every singleton on the common {@link ForkJoinPool}, see {@link #warmUp(Executor)}.
      *
-     * @param key
-     * @param closure
-     * @param <T>
+     * @return The errors occurred, by key
      */
-    public <T> Container addClosure(final Class<T> key, final Closure<T> closure) {
-        return addClosure(key, closure, true);
+    public Map<Class<?>, Throwable> warmUp() {
+        return warmUp(ForkJoinPool.commonPool());
     }
 
-    public <T> Container addClosure(final Class<T> key, final Closure<T> closure, boolean isSingleton) {
-        InjectableObjectProps props = new InjectableObjectProps()
-                .setBuilder(closure)
-                .setSingleton(isSingleton);
+    /**
+     * Eagerly builds every singleton, so the first requests don't pay for it.<br />
+     * The dependencies of the definitions are found through the parameters of their constructors and the fields marked
+     * by {@link mpstyle.jcontainer.annotation.Inject}: a singleton is built on the <i>executor</i> when all its
+     * dependencies are ready, so independent branches of the graph are built in parallel.<br />
+     * If <i>autoInstance</i> is true, the concrete dependencies without a definition are registered first.
+     *
+     * @param executor The executor which builds the singletons
+     * @return The errors occurred, by key: a failure doesn't stop the other singletons
+     */
+    public Map<Class<?>, Throwable> warmUp(Executor executor) {
+        Map<Class<?>, Throwable> failures = new ConcurrentHashMap<Class<?>, Throwable>();
 
-        injectableObjects.put(key.getCanonicalName(), props);
+        if (frozenSlots != null) {
+            return failures;
+        }
 
-        return this;
+        if (autoInstance && !frozen) {
+            addImplicitDefinitions();
+        }
+
+        Map<Class<?>, InjectableObjectProps> definitions = getDefinitions();
+        Map<Class<?>, CompletableFuture<Void>> tasks = new HashMap<Class<?>, CompletableFuture<Void>>();
+        Set<Class<?>> visiting = new HashSet<Class<?>>();
+
+        for (Class<?> key : definitions.keySet()) {
+            scheduleWarmUp(key, definitions, tasks, visiting, failures, executor);
+        }
+
+        CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture<?>[tasks.size()])).join();
+
+        return failures;
     }
 
-    /**
-     * Return an instance of the class associated to the <i>$key</i>.
-     *
-     * @param key The class to instantiate
-     * @param <T> The type of class to instantiate
-     * @return The instance of the class.
-     */
-    public <T> T get(Class<T> key) {
-        if (!existsKey(key)) {
-            if (!autoInstance) {
-                throw new RuntimeException("There is not a definition for class " + key.getCanonicalName());
-            }
+    private CompletableFuture<Void> scheduleWarmUp(
+            final Class<?> key,
+            Map<Class<?>, InjectableObjectProps> definitions,
+            Map<Class<?>, CompletableFuture<Void>> tasks,
+            Set<Class<?>> visiting,
+            final Map<Class<?>, Throwable> failures,
+            Executor executor) {
+        CompletableFuture<Void> task = tasks.get(key);
+        final InjectableObjectProps props = definitions.get(key);
 
-            addDefinition(key, key);
+        if (task != null || props == null) {
+            return task;
         }
 
-        try {
-            InjectableObjectProps props = injectableObjects.get(key.getCanonicalName());
-            T instance = (T) props.getBuilder().call();
+        // A cycle is not followed here: the get() of its first singleton will report it
+        visiting.add(key);
+        List<CompletableFuture<Void>> dependencies = new ArrayList<CompletableFuture<Void>>();
 
-            if (props.isSingleton()) {
-                addInstance(key, instance);
+        for (Class<?> dependency : props.getDependencies()) {
+            if (!visiting.contains(dependency)) {
+                CompletableFuture<Void> dependencyTask = scheduleWarmUp(dependency, definitions, tasks, visiting, failures, executor);
+
+                if (dependencyTask != null) {
+                    dependencies.add(dependencyTask);
+                }
             }
+        }
 
-            return instance;
-        } catch (Exception e) {
-            LOGGER.debug(e);
-            throw new RuntimeException(e);
+        visiting.remove(key);
+
+        // The failures of the dependencies are already reported, and the singleton will try to build them again
+        task = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()]))
+                .handle(new BiFunction<Void, Throwable, Void>() {
+                    public Void apply(Void result, Throwable throwable) {
+                        return null;
+                    }
+                });
+
+        if (props.isSingleton()) {
+            task = task.thenRunAsync(new Runnable() {
+                public void run() {
+                    try {
+                        props.getInstance();
+                    } catch (Throwable e) {
+                        failures.put(key, e);
+                    }
+                }
+            }, executor);
         }
+
+        tasks.put(key, task);
+
+        return task;
     }
 
     /**
-     * Check if exists a way for the {@link Container} to instantiate an object of type <i>T</i>.
+     * Releases the singletons on the common {@link ForkJoinPool}, waiting at most 30 seconds for each one, see
+     * {@link #shutdown(Executor, long, TimeUnit)}.
      *
-     * @param key The {@link Class} of the object
-     * @param <T> The object type
-     * @return Returns true if exists a way for the {@link Container} to instantiate an object of type <i>T</i>, otherwise
-     * false.
+     * @return The errors occurred, by key
      */
-    public <T> boolean existsKey(Class<T> key) {
-        return injectableObjects.containsKey(key.getCanonicalName());
+    public Map<Class<?>, Throwable> shutdown() {
+        return shutdown(ForkJoinPool.commonPool(), 30, TimeUnit.SECONDS);
     }
 
     /**
-     * Load a container using an INI file with the definitions.<br />
-     * Use {@link IniContainer#from(String)} instead. The method will be removed in 2.0.0 version.
+     * Releases the singletons built by this container (not by its parent) which implement {@link AutoCloseable} or
+     * have methods marked by {@link mpstyle.jcontainer.annotation.Dispose}, including the ones of the multi-bindings.
+     * The instances added by {@link #addInstance(Class, Object)} are owned by the caller and they are not released.
+     * <br />
+     * A singleton is released after all the singletons which depend on it, found through the constructors and the
+     * fields marked by {@link mpstyle.jcontainer.annotation.Inject}; independent singletons are released in parallel
+     * on the <i>executor</i>. A singleton built by a closure, whose dependencies are unknown, is released before every
+     * singleton built earlier.<br />
+     * The container must not be used after the shutdown.
      *
-     * @param filePath The file path of the INI file
-     * @return
+     * @param executor The executor which releases the singletons
+     * @param timeout  The maximum time to wait for each singleton: then its dependencies are released anyway
+     * @param unit     The unit of the timeout
+     * @return The errors occurred, by key (by implementation class for the multi-bindings): a failure or a timeout
+     * doesn't stop the other singletons
      */
-    @Deprecated
-    public static Container fromIni(String filePath) {
-        return fromIni(new File(filePath));
+    public Map<Class<?>, Throwable> shutdown(Executor executor, long timeout, TimeUnit unit) {
+        final Map<Class<?>, Throwable> failures = new ConcurrentHashMap<Class<?>, Throwable>();
+        Map<InjectableObjectProps, Class<?>> singletons = new IdentityHashMap<InjectableObjectProps, Class<?>>();
+
+        for (InjectableObjectProps props : getDefinitions().values()) {
+            if (props.isSingleton() && !props.isSupplied() && props.instance != null) {
+                singletons.put(props, props.getKey());
+            }
+        }
+
+        for (MultiBinding binding : multiBindings.values()) {
+            for (InjectableObjectProps props : binding.elements) {
+                if (props.isSingleton() && props.instance != null) {
+                    singletons.put(props, props.getType());
+                }
+            }
+        }
+
+        // The singletons which must be released before each singleton
+        Map<InjectableObjectProps, List<InjectableObjectProps>> dependents = new IdentityHashMap<InjectableObjectProps, List<InjectableObjectProps>>();
+
+        for (InjectableObjectProps props : singletons.keySet()) {
+            dependents.put(props, new ArrayList<InjectableObjectProps>());
+        }
+
+        Map<Class<?>, InjectableObjectProps> definitions = getDefinitions();
+
+        for (InjectableObjectProps props : singletons.keySet()) {
+            for (InjectableObjectProps dependency : singletonDependencies(props, singletons, definitions)) {
+                dependents.get(dependency).add(props);
+            }
+        }
+
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "jcontainer-shutdown-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            Map<InjectableObjectProps, CompletableFuture<Void>> tasks = new IdentityHashMap<InjectableObjectProps, CompletableFuture<Void>>();
+            Set<InjectableObjectProps> visiting = Collections.newSetFromMap(new IdentityHashMap<InjectableObjectProps, Boolean>());
+
+            for (InjectableObjectProps props : singletons.keySet()) {
+                scheduleDispose(props, singletons, dependents, tasks, visiting, failures, executor, timer, timeout, unit);
+            }
+
+            CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture<?>[tasks.size()])).join();
+        } finally {
+            timer.shutdownNow();
+        }
+
+        return failures;
     }
 
     /**
-     * Load a container using an INI file with the definitions.<br />
-     * Use {@link IniContainer#from(File)} instead. The method will be removed in 2.0.0 version.
-     *
-     * @param file
-     * @return
+     * @return The singletons which the <i>props</i> depends on, directly or through definitions which are not
+     * singletons
      */
-    @Deprecated
-    public static Container fromIni(File file) {
-        return IniContainer.from(file);
+    private List<InjectableObjectProps> singletonDependencies(InjectableObjectProps props, Map<InjectableObjectProps, Class<?>> singletons, Map<Class<?>, InjectableObjectProps> definitions) {
+        List<InjectableObjectProps> result = new ArrayList<InjectableObjectProps>();
+
+        if (props.isOpaque()) {
+            for (InjectableObjectProps other : singletons.keySet()) {
+                if (other.completion < props.completion) {
+                    result.add(other);
+                }
+            }
+
+            return result;
+        }
+
+        Set<Class<?>> visited = new HashSet<Class<?>>();
+        Deque<Class<?>> pending = new ArrayDeque<Class<?>>(props.getDependencies());
+
+        while (!pending.isEmpty()) {
+            InjectableObjectProps dependency = definitions.get(pending.pop());
+
+            if (dependency == null || dependency == props || !visited.add(dependency.getKey())) {
+                continue;
+            }
+
+            if (singletons.containsKey(dependency)) {
+                result.add(dependency);
+            } else if (!dependency.isSingleton()) {
+                pending.addAll(dependency.getDependencies());
+            }
+        }
+
+        return result;
     }
 
-    /**
-     * Load a container using an YAML file with the definitions.<br />
-     * Use {@link YamlContainer#from(String)} instead. The method will be removed in 2.0.0 version.
-     *
-     * @param filePath The file path of the YAML file
-     * @return
-     */
-    @Deprecated
-    public static Container fromYaml(String filePath) {
-        return fromYaml(new File(filePath));
+    private CompletableFuture<Void> scheduleDispose(
+            final InjectableObjectProps props,
+            final Map<InjectableObjectProps, Class<?>> singletons,
+            Map<InjectableObjectProps, List<InjectableObjectProps>> dependents,
+            Map<InjectableObjectProps, CompletableFuture<Void>> tasks,
+            Set<InjectableObjectProps> visiting,
+            final Map<Class<?>, Throwable> failures,
+            final Executor executor,
+            final ScheduledExecutorService timer,
+            final long timeout,
+            final TimeUnit unit) {
+        CompletableFuture<Void> task = tasks.get(props);
+
+        if (task != null) {
+            return task;
+        }
+
+        // A cycle, possible only through lazy dependencies, is not followed
+        visiting.add(props);
+        List<CompletableFuture<Void>> before = new ArrayList<CompletableFuture<Void>>();
+
+        for (InjectableObjectProps dependent : dependents.get(props)) {
+            if (!visiting.contains(dependent)) {
+                before.add(scheduleDispose(dependent, singletons, dependents, tasks, visiting, failures, executor, timer, timeout, unit));
+            }
+        }
+
+        visiting.remove(props);
+
+        task = CompletableFuture.allOf(before.toArray(new CompletableFuture<?>[before.size()]))
+                .handle(new BiFunction<Void, Throwable, Void>() {
+                    public Void apply(Void result, Throwable throwable) {
+                        return null;
+                    }
+                })
+                .thenCompose(new Function<Void, CompletableFuture<Void>>() {
+                    public CompletableFuture<Void> apply(Void result) {
+                        return dispose(props.instance, singletons.get(props), failures, executor, timer, timeout, unit);
+                    }
+                });
+
+        tasks.put(props, task);
+
+        return task;
     }
 
     /**
-     * Load a container using an YAML file with the definitions.<br />
-     * Use {@link YamlContainer#from(File)} instead. The method will be removed in 2.0.0 version.
-     *
-     * @param file
-     * @return
+     * @return A future completed when the object is released or when the timeout expires
      */
-    @Deprecated
-    public static Container fromYaml(File file) {
-        return YamlContainer.from(file);
+    private static CompletableFuture<Void> dispose(
+            final Object instance,
+            final Class<?> key,
+            final Map<Class<?>, Throwable> failures,
+            Executor executor,
+            ScheduledExecutorService timer,
+            final long timeout,
+            final TimeUnit unit) {
+        final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+        if (!Disposer.isDisposable(instance)) {
+            done.complete(null);
+            return done;
+        }
+
+        // Either the release or the timeout finishes the task, reporting its failure before completing it
+        final AtomicBoolean finished = new AtomicBoolean();
+
+        final ScheduledFuture<?> expiration = timer.schedule(new Runnable() {
+            public void run() {
+                if (finished.compareAndSet(false, true)) {
+                    failures.put(key, new TimeoutException(format("%s not released in %d %s", key.getName(), timeout, unit)));
+                    done.complete(null);
+                }
+            }
+        }, timeout, unit);
+
+        Runnable release = new Runnable() {
+            public void run() {
+                Throwable failure = null;
+
+                try {
+                    Disposer.dispose(instance);
+                } catch (Throwable e) {
+                    failure = e;
+                }
+
+                expiration.cancel(false);
+
+                if (finished.compareAndSet(false, true)) {
+                    if (failure != null) {
+                        failures.put(key, failure);
+                    }
+
+                    done.complete(null);
+                }
+            }
+        };
+
+        try {
+            executor.execute(release);
+        } catch (RejectedExecutionException e) {
+            release.run();
+        }
+
+        return done;
     }
 
     /**
-     * The magic method: instantiates an object of class <i>clazz</i>.<br>
-     * It will try to use each constructor to have the instance. After that, it will set the member marked by
-     * {@link Inject} annotation.
+     * Checks the dependency graph of the registered definitions, built from the parameters of their constructors and
+     * from their fields marked by {@link mpstyle.jcontainer.annotation.Inject}, without instantiating anything.<br />
+     * If <i>autoInstance</i> is true, a concrete class without a definition is checked as the container would
+     * instantiate it.
      *
-     * @param clazz The class to instantiate
-     * @param <T>   The type of the class to instantiate
-     * @return The instance of class
+     * @return The problems found: each cycle as a path (A -> B -> A) and each missing definition. The list is empty if
+     * the graph is valid.
      */
-    private <T> T getInstanceByClass(Class<T> clazz) {
-        T instance = null;
-        Constructor<T>[] allConstructors = (Constructor<T>[]) clazz.getDeclaredConstructors();
-        String canonicalName = clazz.getCanonicalName();
+    public List<String> validate() {
+        List<String> problems = new ArrayList<String>();
+        Map<Class<?>, List<Class<?>>> graph = new HashMap<Class<?>, List<Class<?>>>();
+        Deque<Class<?>> pending = new ArrayDeque<Class<?>>();
+        final Map<Class<?>, InjectableObjectProps> definitions = getDefinitions();
+        final boolean implicit = autoInstance && !frozen;
+        // A class is checked with the constructor which get() would choose: the first one which can be satisfied
+        Predicate<Class<?>> available = new Predicate<Class<?>>() {
+            public boolean test(Class<?> dependency) {
+                return definitions.containsKey(dependency)
+                        || parent != null && parent.findDefinition(dependency) != null
+                        || implicit && isInstantiable(dependency);
+            }
+        };
 
-        for (Constructor<T> ctor : allConstructors) {
-            try {
-                List<Object> parameters = new CopyOnWriteArrayList<Object>();
-                Class<?>[] pType = ctor.getParameterTypes();
+        for (Map.Entry<Class<?>, InjectableObjectProps> entry : definitions.entrySet()) {
+            graph.put(entry.getKey(), entry.getValue().getDependencies(available));
+            pending.push(entry.getKey());
+        }
+
+        while (!pending.isEmpty()) {
+            Class<?> key = pending.pop();
 
-                for (Class aPType : pType) {
-                    parameters.add(get(aPType));
+            for (Class<?> dependency : graph.get(key)) {
+                if (graph.containsKey(dependency)) {
+                    continue;
                 }
 
-                instance = ctor.newInstance(parameters.toArray());
+                InjectableObjectProps inherited = parent != null ? parent.findDefinition(dependency) : null;
 
-                break;
-            } catch (Exception e) {
-                LOGGER.debug(format("Invalid constructor %s", ctor.toString()), e);
+                if (inherited != null) {
+                    graph.put(dependency, inherited.getDependencies(available));
+                    pending.push(dependency);
+                } else if (implicit && isInstantiable(dependency)) {
+                    graph.put(dependency, newPlan(dependency).getDependencies(available));
+                    pending.push(dependency);
+                } else {
+                    graph.put(dependency, Collections.<Class<?>>emptyList());
+                    problems.add(format("There is not a definition for class %s, required by %s", dependency.getName(), key.getName()));
+                }
             }
         }
 
-        if (instance == null) {
-            throw new RuntimeException(format("Error while instantiate type %s", canonicalName));
+        // Depth first visit: a dependency which is still on the stack closes a cycle
+        Set<Class<?>> visited = new HashSet<Class<?>>();
+
+        for (Class<?> key : graph.keySet()) {
+            findCycles(key, graph, visited, new ArrayList<Class<?>>(), problems);
         }
 
-        return instance;
+        return problems;
     }
 
-    private class InjectableObjectProps {
-        private Closure builder;
-        private boolean isSingleton;
+    private static void findCycles(Class<?> key, Map<Class<?>, List<Class<?>>> graph, Set<Class<?>> visited, List<Class<?>> stack, List<String> problems) {
+        int index = stack.indexOf(key);
 
-        public Closure getBuilder() {
-            return builder;
+        if (index >= 0) {
+            List<Class<?>> cycle = new ArrayList<Class<?>>(stack.subList(index, stack.size()));
+            cycle.add(key);
+            problems.add("Dependency cycle: " + DependencyCycleException.format(cycle));
+            return;
         }
 
-        public InjectableObjectProps setBuilder(Closure builder) {
-            this.builder = builder;
-            return this;
+        if (!visited.add(key)) {
+            return;
         }
 
-        public boolean isSingleton() {
-            return isSingleton;
+        stack.add(key);
+
+        for (Class<?> dependency : graph.get(key)) {
+            findCycles(dependency, graph, visited, stack, problems);
         }
 
-        public InjectableObjectProps setSingleton(boolean singleton) {
-            isSingleton = singleton;
-            return this;
+        stack.remove(stack.size() - 1);
+    }
+
+    /**
+     * Writes the class definitions of this container to a binary index, with the constructor chosen for each class and
+     * its fields marked by {@link mpstyle.jcontainer.annotation.Inject}, dependencies first. Write it when the objects
+     * have been resolved once, for example after {@link #warmUp()}: the classes which were never built are written
+     * without their constructor.<br />
+     * The instances, the closure instances, the scoped, the asynchronous and the pooled definitions are not written:
+     * register them again after {@link #readIndex(File, String)}.
+     *
+     * @param file The index, replaced atomically
+     * @param hash See {@link ResolutionIndex#hash(File...)}
+     */
+    public void writeIndex(File file, String hash) throws IOException {
+        Map<Class<?>, InjectableObjectProps> definitions = getDefinitions();
+        Set<Class<?>> visited = new HashSet<Class<?>>();
+        List<InjectableObjectProps> ordered = new ArrayList<InjectableObjectProps>();
+
+        for (Class<?> key : definitions.keySet()) {
+            sortDefinitions(key, definitions, visited, ordered);
+        }
+
+        File temporary = new File(file.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            ResolutionIndex.writeHeader(out, hash);
+            out.writeInt(ordered.size());
+
+            for (InjectableObjectProps props : ordered) {
+                out.writeUTF(props.getKey().getName());
+                out.writeUTF(props.getType().getName());
+                out.writeBoolean(props.isSingleton());
+                ResolutionIndex.writePlan(out, props.plan);
+            }
+        }
+
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void sortDefinitions(Class<?> key, Map<Class<?>, InjectableObjectProps> definitions, Set<Class<?>> visited, List<InjectableObjectProps> ordered) {
+        InjectableObjectProps props = definitions.get(key);
+
+        if (props == null || !visited.add(key)) {
+            return;
+        }
+
+        for (Class<?> dependency : props.getDependencies()) {
+            sortDefinitions(dependency, definitions, visited, ordered);
+        }
+
+        if (props.getType() != null && props.getScoped() == null && props.getExecutor() == null && props.getPool() == null) {
+            ordered.add(props);
+        }
+    }
+
+    /**
+     * Registers the definitions of an index written by {@link #writeIndex(File, String)}, without looking for the
+     * constructors and the injectable fields of their classes.
+     *
+     * @param file The index
+     * @param hash See {@link ResolutionIndex#hash(File...)}
+     * @return false if the index is missing, invalid or written for another hash: the container is not modified and the
+     * definitions must be registered as usual
+     */
+    public boolean readIndex(File file, String hash) {
+        checkNotFrozen();
+
+        if (!file.isFile()) {
+            return false;
+        }
+
+        ClassLoader loader = Container.class.getClassLoader();
+        Map<Class<?>, InjectableObjectProps> batch = new HashMap<Class<?>, InjectableObjectProps>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (!ResolutionIndex.readHeader(in, hash)) {
+                return false;
+            }
+
+            for (int i = in.readInt(); i > 0; i--) {
+                Class<?> key = Class.forName(in.readUTF(), false, loader);
+                Class<?> type = Class.forName(in.readUTF(), false, loader);
+                InjectableObjectProps props = newIndexedDefinition(key, type, in.readBoolean());
+                props.plan = ResolutionIndex.readPlan(in, type, loader);
+
+                batch.put(key, props);
+            }
+        } catch (IOException | ReflectiveOperationException | LinkageError | RuntimeException e) {
+            // A stale index: a class or a member doesn't exist anymore
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(format("Invalid index %s", file.getPath()), e);
+            }
+
+            return false;
+        }
+
+        defineAll(batch);
+
+        return true;
+    }
+
+    private static <T> ResolutionPlan<T> newPlan(Class<T> type) {
+        return new ResolutionPlan<T>(type);
+    }
+
+    /**
+     * @return The definition of a class read from an index, which is checked only by the class names
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private InjectableObjectProps newIndexedDefinition(Class key, Class type, boolean isSingleton) {
+        return Closure.class.isAssignableFrom(type)
+                ? newClosureDefinition(key, type).setSingleton(isSingleton)
+                : newDefinition(key, type, isSingleton);
+    }
+
+    /**
+     * @return true if the container has been frozen, see {@link #freeze()}
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Add a class definition
+     *
+     * @param key
+     * @param clazz
+     * @param <T>
+     */
+    public <T> Container addDefinition(final Class<T> key, final Class<? extends T> clazz) {
+        return this.addDefinition(key, clazz, true);
+    }
+
+    public <T> Container addDefinition(final Class<T> clazz) {
+        return this.addDefinition(clazz, clazz, true);
+    }
+
+    public <T> Container addDefinition(final Class<T> clazz, boolean isSingleton) {
+        return this.addDefinition(clazz, clazz, isSingleton);
+    }
+
+    public <T> Container addDefinition(final Class<T> key, final Class<? extends T> clazz, boolean isSingleton) {
+        checkNotFrozen();
+        define(key, newDefinition(key, clazz, isSingleton));
+
+        return this;
+    }
+
+    /**
+     * Add a singleton definition for each entry, from the key class to the implementation class, replacing the existing
+     * ones.
+     *
+     * @param definitions The implementation class by key
+     * @throws IllegalArgumentException if an implementation is not assignable to its key: no definition is added
+     */
+    public Container addDefinitions(Map<Class<?>, Class<?>> definitions) {
+        checkNotFrozen();
+
+        Map<Class<?>, InjectableObjectProps> batch = new HashMap<Class<?>, InjectableObjectProps>(definitions.size() * 2);
+
+        for (Map.Entry<Class<?>, Class<?>> entry : definitions.entrySet()) {
+            checkAssignable(entry.getKey(), entry.getValue());
+            batch.put(entry.getKey(), newDefinition(entry.getKey(), entry.getValue(), true));
+        }
+
+        defineAll(batch);
+
+        return this;
+    }
+
+    /**
+     * Replaces the singleton definitions of the <i>definitions</i> and removes the <i>removed</i> keys, publishing the
+     * new registry at once: a concurrent {@link #get(Class)} sees either all the changes or none of them, and it never
+     * waits for the update. See {@link DefinitionWatcher}.<br />
+     * A definition whose implementation didn't change is kept together with its singleton. The objects already built
+     * keep the dependencies they received.
+     *
+     * @param definitions The implementation class by key
+     * @param removed     The keys to remove
+     * @throws IllegalArgumentException if an implementation is not assignable to its key: the registry is not changed
+     */
+    public Container updateDefinitions(Map<Class<?>, Class<?>> definitions, Set<Class<?>> removed) {
+        checkNotFrozen();
+        updateLock.lock();
+
+        try {
+            ConcurrentHashMap<Class<?>, InjectableObjectProps> current = injectableObjects;
+            ConcurrentHashMap<Class<?>, InjectableObjectProps> next = new ConcurrentHashMap<Class<?>, InjectableObjectProps>(current);
+
+            for (Class<?> key : removed) {
+                next.remove(key);
+            }
+
+            for (Map.Entry<Class<?>, Class<?>> entry : definitions.entrySet()) {
+                checkAssignable(entry.getKey(), entry.getValue());
+                InjectableObjectProps props = current.get(entry.getKey());
+
+                if (props == null || props.getType() != entry.getValue() || !props.isSingleton() || props.getScoped() != null || props.getExecutor() != null) {
+                    next.put(entry.getKey(), newDefinition(entry.getKey(), entry.getValue(), true));
+                }
+            }
+
+            injectableObjects = next;
+            unresolvable.keySet().removeAll(definitions.keySet());
+            registrations.incrementAndGet();
+        } finally {
+            updateLock.unlock();
+        }
+
+        return this;
+    }
+
+    /**
+     * Registers the definition of the <i>key</i>, which is no longer unresolvable, and forgets the keys whose
+     * dependencies couldn't be resolved.<br />
+     * Every registration takes the lock of {@link #updateDefinitions(Map, Set)}: a definition put in the registry which
+     * an update is replacing would be lost.
+     */
+    private void define(Class<?> key, InjectableObjectProps props) {
+        updateLock.lock();
+
+        try {
+            injectableObjects.put(key, props);
+            unresolvable.remove(key);
+            registrations.incrementAndGet();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void defineAll(Map<Class<?>, InjectableObjectProps> batch) {
+        updateLock.lock();
+
+        try {
+            injectableObjects.putAll(batch);
+            unresolvable.keySet().removeAll(batch.keySet());
+            registrations.incrementAndGet();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Registers the implicit definition of the <i>key</i> if it hasn't one yet: it doesn't make any key resolvable, so
+     * the unresolvable keys are kept.
+     *
+     * @return The definition already registered, or null if <i>props</i> has been registered
+     */
+    private InjectableObjectProps defineIfAbsent(Class<?> key, InjectableObjectProps props) {
+        updateLock.lock();
+
+        try {
+            return injectableObjects.putIfAbsent(key, props);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private static void checkAssignable(Class<?> key, Class<?> clazz) {
+        if (!key.isAssignableFrom(clazz)) {
+            throw new IllegalArgumentException(format("%s is not a %s", clazz.getName(), key.getName()));
+        }
+    }
+
+    /**
+     * Add a class definition whose objects live in the <i>scope</i>.
+     *
+     * @param key
+     * @param clazz
+     * @param scope See {@link mpstyle.jcontainer.scope.ThreadScope} and {@link mpstyle.jcontainer.scope.RequestScope}
+     * @param <T>
+     */
+    public <T> Container addDefinition(final Class<T> key, final Class<? extends T> clazz, Scope scope) {
+        checkNotFrozen();
+        define(key, newDefinition(key, clazz, false).setScope(scope));
+
+        return this;
+    }
+
+    /**
+     * Add a singleton implementation to the multi-binding of the <i>key</i>, see {@link #getAll(Class)}. The
+     * multi-bindings are independent of the definition of the key used by {@link #get(Class)}.
+     *
+     * @param key
+     * @param clazz
+     * @param <T>
+     */
+    public <T> Container addMultiBinding(final Class<T> key, final Class<? extends T> clazz) {
+        return addMultiBinding(key, clazz, true);
+    }
+
+    public <T> Container addMultiBinding(final Class<T> key, final Class<? extends T> clazz, boolean isSingleton) {
+        checkNotFrozen();
+
+        final InjectableObjectProps props = newDefinition(key, clazz, isSingleton);
+
+        multiBindings.compute(key, new BiFunction<Class<?>, MultiBinding, MultiBinding>() {
+            public MultiBinding apply(Class<?> key, MultiBinding binding) {
+                return binding == null ? new MultiBinding(new InjectableObjectProps[]{props}) : binding.add(props);
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Add a class definition whose objects are reused through a pool, see {@link #borrow(Class)}.
+     * {@link #get(Class)} returns a new object, which doesn't belong to the pool.
+     *
+     * @param key
+     * @param clazz
+     * @param maxSize The maximum number of idle objects kept by the pool
+     * @param policy  What to do when there isn't an idle object
+     * @param <T>
+     */
+    public <T> Container addPooledDefinition(final Class<T> key, final Class<? extends T> clazz, int maxSize, PoolPolicy policy) {
+        checkNotFrozen();
+        define(key, newDefinition(key, clazz, false).setPool(maxSize, policy));
+
+        return this;
+    }
+
+    private <T> InjectableObjectProps newDefinition(Class<?> key, final Class<T> clazz, boolean isSingleton) {
+        final InjectableObjectProps props = new InjectableObjectProps()
+                .setKey(key)
+                .setType(clazz)
+                .setSingleton(isSingleton);
+
+        props.setBuilder(new Closure<T>() {
+            @SuppressWarnings("unchecked")
+            public T call() {
+                Factory<T> generated = (Factory<T>) props.getGeneratedFactory();
+
+                if (generated != null) {
+                    return generated.create(Container.this);
+                }
+
+                ResolutionPlan<T> plan = (ResolutionPlan<T>) props.getPlan();
+
+                if (compiledFactories) {
+                    T instance = getInstanceByFactory(plan);
+
+                    if (instance != null) {
+                        if (listener != null) {
+                            listener.constructorChosen(plan.getType(), plan.getConstructor(plan.getChosen()));
+                        }
+
+                        return instance;
+                    }
+                }
+
+                T instance = getInstanceByPlan(plan);
+
+                // Don't move this "for" into {#link #getInstanceByPlan} method, because it could permit to use Inject
+                // annotation in the Callable
+                Field[] fields = plan.getInjectableFields();
+                Dependency[] dependencies = plan.getFieldDependencies();
+
+                for (int i = 0; i < fields.length; i++) {
+                    try {
+                        fields[i].set(instance, getDependency(dependencies[i]));
+                    } catch (IllegalAccessException e) {
+                        // It is impossible to set the object market with @Inject
+                        LOGGER.debug(e);
+                    }
+                }
+
+                return instance;
+            }
+        });
+
+        return props;
+    }
+
+    /**
+     * Add an instance of a <i>T</i>.
+     *
+     * @param key
+     * @param obj
+     * @param <T>
+     */
+    public <T> Container addInstance(Class<T> key, final T obj) {
+        checkNotFrozen();
+
+        InjectableObjectProps props = new InjectableObjectProps()
+                .setKey(key)
+                .setBuilder(new Closure<T>() {
+                    public T call() {
+                        return obj;
+                    }
+                })
+                .setSingleton(true)
+                .setInstance(obj);
+
+        define(key, props);
+
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> Container addInstance(final T obj) {
+        return this.addInstance((Class<T>)obj.getClass(), obj);
+    }
+
+    /**
+     * Add a {@link Closure} class to the container.
+     *
+     * @param key
+     * @param closure
+     * @param <T>
+     */
+    public <T> Container addClosure(final Class<T> key, final Class<? extends Closure<T>> closure) {
+        return this.addClosure(key, closure, true);
+    }
+
+    public <T> Container addClosure(final Class<T> key, final Class<? extends Closure<T>> closure, boolean isSingleton) {
+        checkNotFrozen();
+        define(key, newClosureDefinition(key, closure).setSingleton(isSingleton));
+
+        return this;
+    }
+
+    /**
+     * Add a {@link Closure} class to the container, the objects returned by the closure live in the <i>scope</i>.
+     *
+     * @param key
+     * @param closure
+     * @param scope
+     * @param <T>
+     */
+    public <T> Container addClosure(final Class<T> key, final Class<? extends Closure<T>> closure, Scope scope) {
+        checkNotFrozen();
+        define(key, newClosureDefinition(key, closure).setScope(scope));
+
+        return this;
+    }
+
+    private <T> InjectableObjectProps newClosureDefinition(final Class<T> key, final Class<? extends Closure<T>> closure) {
+        final InjectableObjectProps props = new InjectableObjectProps()
+                .setKey(key)
+                .setType(closure);
+
+        props.setBuilder(new Closure<T>() {
+            @SuppressWarnings("unchecked")
+            public T call() {
+                try {
+                    return ((Closure<T>) getInstanceByPlan(props.getPlan())).call();
+                } catch (DependencyCycleException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        return props;
+    }
+
+    /**
+     * Add a {@link Closure} instance to the container.
+     *
+     * @param key
+     * @param closure
+     * @param <T>
+     */
+    public <T> Container addClosure(final Class<T> key, final Closure<T> closure) {
+        return addClosure(key, closure, true);
+    }
+
+    public <T> Container addClosure(final Class<T> key, final Closure<T> closure, boolean isSingleton) {
+        checkNotFrozen();
+
+        InjectableObjectProps props = new InjectableObjectProps()
+                .setKey(key)
+                .setBuilder(closure)
+                .setSingleton(isSingleton);
+
+        define(key, props);
+
+        return this;
+    }
+
+    /**
+     * Add a {@link Closure} instance to the container, the objects returned by the closure live in the <i>scope</i>.
+     *
+     * @param key
+     * @param closure
+     * @param scope
+     * @param <T>
+     */
+    public <T> Container addClosure(final Class<T> key, final Closure<T> closure, Scope scope) {
+        checkNotFrozen();
+
+        InjectableObjectProps props = new InjectableObjectProps()
+                .setKey(key)
+                .setBuilder(closure)
+                .setScope(scope);
+
+        define(key, props);
+
+        return this;
+    }
+
+    /**
+     * Add a class definition whose singleton is built in background on the <i>executor</i>, the first time it is asked
+     * by {@link #get(Class)} or {@link #getAsync(Class)}.
+     *
+     * @param key
+     * @param clazz
+     * @param executor The executor which builds the singleton
+     * @param <T>
+     */
+    public <T> Container addAsyncDefinition(final Class<T> key, final Class<? extends T> clazz, Executor executor) {
+        checkNotFrozen();
+        define(key, newDefinition(key, clazz, true).setExecutor(executor));
+
+        return this;
+    }
+
+    /**
+     * Add a {@link Closure} instance whose singleton is built in background on the <i>executor</i>, the first time it
+     * is asked by {@link #get(Class)} or {@link #getAsync(Class)}: the callers which ask it while it is building share
+     * the same construction.
+     *
+     * @param key
+     * @param closure
+     * @param executor The executor which builds the singleton
+     * @param <T>
+     */
+    public <T> Container addAsyncClosure(final Class<T> key, final Closure<T> closure, Executor executor) {
+        checkNotFrozen();
+
+        InjectableObjectProps props = new InjectableObjectProps()
+                .setKey(key)
+                .setBuilder(closure)
+                .setSingleton(true)
+                .setExecutor(executor);
+
+        define(key, props);
+
+        return this;
+    }
+
+    /**
+     * Return an instance of the class associated to the <i>$key</i>.
+     *
+     * @param key The class to instantiate
+     * @param <T> The type of class to instantiate
+     * @return The instance of the class.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Class<T> key) {
+        if (frozenSlots != null) {
+            FrozenSlot slot = frozenSlots.get(key);
+
+            if (slot == null) {
+                if (parent != null) {
+                    return parent.get(key);
+                }
+
+                throw new UnresolvableTypeException(key, "There is not a definition for class " + key.getName(), null);
+            }
+
+            if (slot.instance != null) {
+                if (listener != null) {
+                    listener.singletonHit(key);
+                }
+
+                return (T) slot.instance;
+            }
+
+            return resolve(slot.props);
+        }
+
+        return resolve(getDefinition(key));
+    }
+
+    /**
+     * Like {@link #get(Class)}, but a key which can't be resolved (see {@link UnresolvableTypeException}), or whose
+     * dependencies can't be resolved, returns an empty {@link Optional} instead of throwing, so it suits the probe of
+     * an optional dependency in a hot path. The other failures, like a dependency cycle or the error of a constructor,
+     * are still thrown.
+     *
+     * @param key The class to instantiate
+     * @param <T> The type of class to instantiate
+     * @return The instance of the class, or empty
+     */
+    public <T> Optional<T> tryGet(Class<T> key) {
+        if (findDefinition(key) == null && (!autoInstance || frozen || isUnresolvable(key))) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(get(key));
+        } catch (RuntimeException e) {
+            if (rootCause(e) instanceof UnresolvableTypeException) {
+                return Optional.empty();
+            }
+
+            throw e;
+        }
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable result = e;
+
+        while (result.getCause() != null) {
+            result = result.getCause();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the objects of the multi-binding of the <i>key</i> (see {@link #addMultiBinding(Class, Class)}), in the
+     * order of registration. If every implementation is a singleton, the list is built once and the following calls
+     * return the same list.
+     *
+     * @param key The key of the multi-binding
+     * @param <T> The type of the objects
+     * @return An immutable list, empty if nothing is bound to the key in this container or in its ancestors
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getAll(Class<T> key) {
+        MultiBinding binding = null;
+
+        for (Container container = this; container != null && binding == null; container = container.parent) {
+            binding = container.multiBindings.get(key);
+        }
+
+        if (binding == null) {
+            return Collections.emptyList();
+        }
+
+        List<Object> result = binding.cached;
+
+        if (result == null) {
+            Object[] objects = new Object[binding.elements.length];
+            boolean singletons = true;
+
+            for (int i = 0; i < objects.length; i++) {
+                objects[i] = resolve(binding.elements[i]);
+                singletons &= binding.elements[i].isSingleton();
+            }
+
+            result = Collections.unmodifiableList(Arrays.asList(objects));
+
+            // Two threads could build the list together: they resolve the same singletons
+            if (singletons) {
+                binding.cached = result;
+            }
+        }
+
+        return (List<T>) result;
+    }
+
+    /**
+     * Returns the objects associated to the <i>keys</i>, as {@link #get(Class)} does, reading the registry once for
+     * all of them.
+     *
+     * @param keys The classes to instantiate
+     * @return The objects, in the order of the keys
+     */
+    public Object[] getMany(Class<?>... keys) {
+        Object[] result = new Object[keys.length];
+
+        if (frozenSlots != null) {
+            for (int i = 0; i < keys.length; i++) {
+                result[i] = get(keys[i]);
+            }
+
+            return result;
+        }
+
+        ConcurrentHashMap<Class<?>, InjectableObjectProps> definitions = injectableObjects;
+
+        for (int i = 0; i < keys.length; i++) {
+            InjectableObjectProps props = definitions.get(keys[i]);
+            result[i] = resolve(props != null ? props : getDefinition(keys[i]));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a future of the object associated to the <i>key</i>, without waiting for the asynchronous definitions
+     * (see {@link #addAsyncClosure(Class, Closure, Executor)}).<br />
+     * The future of an asynchronous definition is shared by all its callers, so it must not be completed or cancelled
+     * by them: its singleton is built on its executor, when the asynchronous definitions it depends on are ready. Any
+     * other object is built when the asynchronous definitions it depends on, directly or through its dependencies, are
+     * ready: on the thread which completes the last of them, or on the calling thread if there isn't one to wait for.
+     * <br />
+     * A cycle through an asynchronous definition is not detected at runtime: use {@link #validate()}.
+     *
+     * @param key The class to instantiate
+     * @param <T> The type of class to instantiate
+     * @return The future of the object, completed exceptionally if the object can't be built
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(final Class<T> key) {
+        List<CompletableFuture<Object>> pending = new ArrayList<CompletableFuture<Object>>();
+
+        try {
+            InjectableObjectProps props = frozenSlots != null ? findDefinition(key) : getDefinition(key);
+
+            if (props != null && props.getExecutor() != null) {
+                return (CompletableFuture<T>) props.getFuture();
+            }
+
+            findPending(key, Collections.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>()), pending);
+
+            if (pending.isEmpty()) {
+                return CompletableFuture.completedFuture(get(key));
+            }
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<T>();
+            failed.completeExceptionally(e);
+
+            return failed;
+        }
+
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()]))
+                .thenApply(new Function<Void, T>() {
+                    public T apply(Void result) {
+                        return get(key);
+                    }
+                });
+    }
+
+    /**
+     * Collects the futures of the asynchronous definitions which the <i>key</i> depends on, starting them. The
+     * dependencies of an asynchronous definition are resolved by its own construction.
+     */
+    private void findPending(Class<?> key, Set<Class<?>> visited, List<CompletableFuture<Object>> pending) {
+        if (!visited.add(key)) {
+            return;
+        }
+
+        InjectableObjectProps props = findDefinition(key);
+        List<Class<?>> dependencies;
+
+        if (props != null) {
+            if (props.getExecutor() != null) {
+                pending.add(props.getFuture());
+                return;
+            }
+
+            if (props.isSingleton() && props.instance != null) {
+                return;
+            }
+
+            dependencies = props.getDependencies();
+        } else if (autoInstance && !frozen && isInstantiable(key)) {
+            dependencies = newPlan(key).getDependencies();
+        } else {
+            return;
+        }
+
+        for (Class<?> dependency : dependencies) {
+            findPending(dependency, visited, pending);
+        }
+    }
+
+    /**
+     * @return The definition of the <i>key</i>, in this container or in its ancestors. If there isn't one and
+     * <i>autoInstance</i> is true, a singleton definition of the key is registered.
+     */
+    private InjectableObjectProps getDefinition(Class<?> key) {
+        InjectableObjectProps props = findDefinition(key);
+
+        if (props == null) {
+            UnresolvableTypeException known = findUnresolvable(key);
+
+            if (known != null) {
+                throw known;
+            }
+
+            if (!autoInstance || frozen) {
+                throw new UnresolvableTypeException(key, "There is not a definition for class " + key.getName(), null);
+            }
+
+            // A key which can never be built is remembered for ever, a key whose dependencies can't be resolved until
+            // the next registration (see InjectableObjectProps#getInstance), a key whose constructor fails not at all
+            if (!isBuildable(key)) {
+                throw markUnresolvable(key, new UnresolvableTypeException(key, format("There is not a definition for class %s, which can't be instantiated", key.getName()), null), -1);
+            }
+
+            // Two threads could miss the same key together: only the first definition is kept, so both of them will
+            // share the same singleton.
+            InjectableObjectProps definition = newDefinition(key, key, true).setImplicit(true);
+            props = defineIfAbsent(key, definition);
+
+            if (props == null) {
+                props = definition;
+            }
+        }
+
+        return props;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T resolve(InjectableObjectProps props) {
+        try {
+            if (props.isSingleton()) {
+                Object instance = props.instance;
+
+                if (instance != null) {
+                    if (listener != null) {
+                        listener.singletonHit(props.getKey());
+                    }
+
+                    return (T) instance;
+                }
+
+                return (T) props.getInstance();
+            }
+
+            Closure<?> scoped = props.getScoped();
+
+            if (scoped != null) {
+                return (T) scoped.call();
+            }
+
+            return (T) props.build();
+        } catch (DependencyCycleException e) {
+            throw e;
+        } catch (UnresolvableTypeException e) {
+            throw e;
+        } catch (Exception e) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(e);
+            }
+
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return false if the container can't build the <i>key</i> by reflection: it is an interface, an abstract class, a
+     * primitive or an array, or none of its constructors is accessible
+     */
+    private static boolean isBuildable(Class<?> key) {
+        if (!isInstantiable(key)) {
+            return false;
+        }
+
+        boolean samePackage = key.getPackage() == Container.class.getPackage();
+
+        for (Constructor<?> constructor : key.getDeclaredConstructors()) {
+            int modifiers = constructor.getModifiers();
+
+            if (Modifier.isPublic(modifiers) || samePackage && !Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param version The {@link #version()} read before finding that the dependencies of the key can't be resolved, or
+     *                -1 if the key can never be built
+     */
+    private UnresolvableTypeException markUnresolvable(Class<?> key, UnresolvableTypeException e, long version) {
+        unresolvable.put(key, new Unresolvable(e, version));
+
+        return e;
+    }
+
+    /**
+     * @return The number of registrations made in this container and in its ancestors
+     */
+    private long version() {
+        long result = 0;
+
+        for (Container container = this; container != null; container = container.parent) {
+            result += container.registrations.get();
+        }
+
+        return result;
+    }
+
+    /**
+     * Borrows an object of a pooled definition (see {@link #addPooledDefinition(Class, Class, int, PoolPolicy)}): an
+     * idle object of the pool if there is one, otherwise a new object or, with {@link PoolPolicy#WAIT}, the first one
+     * returned.
+     *
+     * @param key The class of the pooled definition
+     * @param <T> The type of the object
+     * @return The object, to close to return it to the pool
+     * @throws IllegalArgumentException if the key hasn't a pooled definition
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Pooled<T> borrow(Class<T> key) {
+        InjectableObjectProps props = findDefinition(key);
+        ObjectPool<T> pool = props == null ? null : (ObjectPool<T>) props.getPool();
+
+        if (pool == null) {
+            throw new IllegalArgumentException("There is not a pooled definition for class " + key.getName());
+        }
+
+        return pool.borrow();
+    }
+
+    /**
+     * Returns a {@link Closure} which resolves the object associated to the <i>key</i> on its first call, then returns
+     * always the same object.<br />
+     * A constructor parameter or a field marked by {@link mpstyle.jcontainer.annotation.Inject} of type
+     * <i>Closure&lt;T&gt;</i> is injected in this way.
+     *
+     * @param key The class to instantiate
+     * @param <T> The type of class to instantiate
+     * @return The lazy closure
+     */
+    public <T> Closure<T> getProvider(Class<T> key) {
+        return new LazyReference<T>(this, key);
+    }
+
+    /**
+     * Returns a proxy of the interface <i>key</i> which resolves the object associated to the key on the first method
+     * call.<br />
+     * A field marked by both {@link mpstyle.jcontainer.annotation.Inject} and {@link mpstyle.jcontainer.annotation.Lazy}
+     * is injected in this way.
+     *
+     * @param key The interface of the object
+     * @param <T> The type of the interface
+     * @return The proxy
+     */
+    public <T> T getLazy(Class<T> key) {
+        if (!key.isInterface()) {
+            throw new IllegalArgumentException(format("A lazy dependency must be an interface: %s is not", key.getName()));
+        }
+
+        return key.cast(Proxy.newProxyInstance(key.getClassLoader(), new Class<?>[]{key}, new LazyReference<T>(this, key)));
+    }
+
+    Object getDependency(Dependency dependency) {
+        switch (dependency.getKind()) {
+            case PROVIDER:
+                return getProvider(dependency.getKey());
+            case PROXY:
+                return getLazy(dependency.getKey());
+            default:
+                return get(dependency.getKey());
+        }
+    }
+
+    /**
+     * Check if exists a way for the {@link Container} to instantiate an object of type <i>T</i>.
+     *
+     * @param key The {@link Class} of the object
+     * @param <T> The object type
+     * @return Returns true if exists a way for the {@link Container} to instantiate an object of type <i>T</i>, otherwise
+     * false.
+     */
+    public <T> boolean existsKey(Class<T> key) {
+        return findDefinition(key) != null;
+    }
+
+    /**
+     * @return true if the container, or one of its ancestors, has found that the <i>key</i> can't be resolved: there
+     * isn't a definition for it and it can't be instantiated, or the container has found that the dependencies of the
+     * key can't be resolved and nothing has been registered since. {@link #clear()} forgets these keys.
+     */
+    public boolean isUnresolvable(Class<?> key) {
+        return findUnresolvable(key) != null;
+    }
+
+    private UnresolvableTypeException findUnresolvable(Class<?> key) {
+        for (Container container = this; container != null; container = container.parent) {
+            Unresolvable known = container.unresolvable.get(key);
+
+            if (known == null) {
+                continue;
+            }
+
+            // The dependencies missing in an ancestor could be defined by this container
+            if (known.version < 0) {
+                return known.exception;
+            } else if (container == this) {
+                if (known.version == version()) {
+                    return known.exception;
+                }
+
+                unresolvable.remove(key, known);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The definition of the <i>key</i> in this container or, if it is missing, in its ancestors; null if there
+     * isn't one
+     */
+    private InjectableObjectProps findDefinition(Class<?> key) {
+        for (Container container = this; container != null; container = container.parent) {
+            if (container.frozenSlots != null) {
+                FrozenSlot slot = container.frozenSlots.get(key);
+
+                if (slot != null) {
+                    return slot.props;
+                }
+            } else {
+                InjectableObjectProps props = container.injectableObjects.get(key);
+
+                if (props != null) {
+                    return props;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Load a container using an INI file with the definitions.<br />
+     * Use {@link IniContainer#from(String)} instead. The method will be removed in 2.0.0 version.
+     *
+     * @param filePath The file path of the INI file
+     * @return
+     */
+    @Deprecated
+    public static Container fromIni(String filePath) {
+        return fromIni(new File(filePath));
+    }
+
+    /**
+     * Load a container using an INI file with the definitions.<br />
+     * Use {@link IniContainer#from(File)} instead. The method will be removed in 2.0.0 version.
+     *
+     * @param file
+     * @return
+     */
+    @Deprecated
+    public static Container fromIni(File file) {
+        return IniContainer.from(file);
+    }
+
+    /**
+     * Load a container using an YAML file with the definitions.<br />
+     * Use {@link YamlContainer#from(String)} instead. The method will be removed in 2.0.0 version.
+     *
+     * @param filePath The file path of the YAML file
+     * @return
+     */
+    @Deprecated
+    public static Container fromYaml(String filePath) {
+        return fromYaml(new File(filePath));
+    }
+
+    /**
+     * Load a container using an YAML file with the definitions.<br />
+     * Use {@link YamlContainer#from(File)} instead. The method will be removed in 2.0.0 version.
+     *
+     * @param file
+     * @return
+     */
+    @Deprecated
+    public static Container fromYaml(File file) {
+        return YamlContainer.from(file);
+    }
+
+    /**
+     * The magic method: instantiates an object using the {@link ResolutionPlan} of its class.<br>
+     * It will try first the constructor which succeeded the last time, then each other constructor to have the
+     * instance.
+     *
+     * @param plan The resolution plan of the class to instantiate
+     * @param <T>  The type of the class to instantiate
+     * @return The instance of class
+     */
+    private <T> T getInstanceByPlan(ResolutionPlan<T> plan) {
+        int chosen = plan.getChosen();
+        Exception failure = null;
+
+        if (chosen >= 0) {
+            try {
+                T instance = newInstance(plan, chosen);
+
+                if (listener != null) {
+                    listener.constructorChosen(plan.getType(), plan.getConstructor(chosen));
+                }
+
+                return instance;
+            } catch (DependencyCycleException e) {
+                throw e;
+            } catch (Exception e) {
+                failure = e;
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(format("Invalid constructor %s", plan.getConstructor(chosen).toString()), e);
+                }
+
+                if (listener != null) {
+                    listener.constructorRejected(plan.getType(), plan.getConstructor(chosen), e);
+                }
+            }
+        }
+
+        for (int i = 0; i < plan.getConstructorCount(); i++) {
+            if (i == chosen) {
+                continue;
+            }
+
+            try {
+                T instance = newInstance(plan, i);
+                plan.setChosen(i);
+
+                if (listener != null) {
+                    listener.constructorChosen(plan.getType(), plan.getConstructor(i));
+                }
+
+                return instance;
+            } catch (DependencyCycleException e) {
+                throw e;
+            } catch (Exception e) {
+                failure = e;
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(format("Invalid constructor %s", plan.getConstructor(i).toString()), e);
+                }
+
+                if (listener != null) {
+                    listener.constructorRejected(plan.getType(), plan.getConstructor(i), e);
+                }
+            }
+        }
+
+        throw new RuntimeException(format("Error while instantiate type %s", plan.getType().getName()), failure);
+    }
+
+    /**
+     * Instantiates an object using the {@link CompiledFactory} of the plan, setting also the members marked by
+     * {@link mpstyle.jcontainer.annotation.Inject} annotation.<br />
+     * The errors of the constructor and of the dependencies are thrown: the object is not built again by reflection.
+     *
+     * @return The instance of class, or null if the plan has not a compiled factory, because no constructor succeeded
+     * yet or the members of the class can not be bound to method handles.
+     */
+    private <T> T getInstanceByFactory(ResolutionPlan<T> plan) {
+        CompiledFactory<T> factory = plan.getFactory();
+
+        if (factory == null) {
+            return null;
+        }
+
+        try {
+            return factory.create(this);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private <T> T newInstance(ResolutionPlan<T> plan, int index) throws Exception {
+        Dependency[] pType = plan.getParameters(index);
+        Object[] parameters = new Object[pType.length];
+
+        for (int i = 0; i < pType.length; i++) {
+            parameters[i] = getDependency(pType[i]);
+        }
+
+        return plan.getConstructor(index).newInstance(parameters);
+    }
+
+    /**
+     * @return A copy of the registered definitions
+     */
+    private Map<Class<?>, InjectableObjectProps> getDefinitions() {
+        Map<Class<?>, InjectableObjectProps> definitions = new HashMap<Class<?>, InjectableObjectProps>();
+
+        if (frozenSlots != null) {
+            for (Map.Entry<Class<?>, FrozenSlot> entry : frozenSlots.entrySet()) {
+                definitions.put(entry.getKey(), entry.getValue().props);
+            }
+        } else {
+            definitions.putAll(injectableObjects);
+        }
+
+        return definitions;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The container is frozen");
+        }
+    }
+
+    /**
+     * Registers a singleton definition for each concrete class required by the registered definitions (and by the
+     * definitions registered here) which hasn't a definition yet.
+     */
+    private void addImplicitDefinitions() {
+        Deque<ResolutionPlan<?>> pending = new ArrayDeque<ResolutionPlan<?>>();
+
+        for (InjectableObjectProps props : injectableObjects.values()) {
+            if (props.getPlan() != null) {
+                pending.push(props.getPlan());
+            }
+        }
+
+        while (!pending.isEmpty()) {
+            ResolutionPlan<?> plan = pending.pop();
+
+            for (Class<?> dependency : plan.getAllDependencies()) {
+                if (isInstantiable(dependency) && findDefinition(dependency) == null) {
+                    InjectableObjectProps props = newDefinition(dependency, dependency, true).setImplicit(true);
+
+                    if (defineIfAbsent(dependency, props) == null) {
+                        pending.push(props.getPlan());
+                    }
+                }
+            }
+        }
+    }
+
+    private static Factory<?> loadGeneratedFactory(Class<?> type) {
+        if (type == null || type.getClassLoader() == null || !getFactoryIndex(type.getClassLoader()).contains(type.getName())) {
+            return null;
+        }
+
+        try {
+            Class<?> factory = Class.forName(Factory.nameOf(type.getName()), true, type.getClassLoader());
+
+            return (Factory<?>) factory.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            // A stale index, or a factory which doesn't match the class
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(format("Invalid generated factory for %s", type.getName()), e);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * @return The classes with a generated factory which the <i>loader</i> can see, read once from the
+     * {@link Factory#INDEX} resources
+     */
+    private static Set<String> getFactoryIndex(ClassLoader loader) {
+        Set<String> result = FACTORY_INDEXES.get(loader);
+
+        if (result != null) {
+            return result;
+        }
+
+        result = new HashSet<String>();
+
+        try {
+            Enumeration<URL> resources = loader.getResources(Factory.INDEX);
+
+            while (resources.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(resources.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        if (!line.trim().isEmpty()) {
+                            result.add(line.trim());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Without an index, the classes are built by reflection
+            LOGGER.debug(e);
+        }
+
+        FACTORY_INDEXES.put(loader, result);
+
+        return result;
+    }
+
+    private static boolean isInstantiable(Class<?> type) {
+        return !type.isInterface() && !type.isPrimitive() && !type.isArray() && !Modifier.isAbstract(type.getModifiers());
+    }
+
+    /**
+     * A key found unresolvable, see {@link #findUnresolvable(Class)}.
+     */
+    private static final class Unresolvable {
+        private final UnresolvableTypeException exception;
+        // The version of the container when the dependencies of the key couldn't be resolved, or -1 if the key can
+        // never be built
+        private final long version;
+
+        private Unresolvable(UnresolvableTypeException exception, long version) {
+            this.exception = exception;
+            this.version = version;
+        }
+    }
+
+    /**
+     * A definition of a frozen container: the singleton is kept in a final field.
+     */
+    private static final class FrozenSlot {
+        private final Object instance;
+        private final InjectableObjectProps props;
+
+        private FrozenSlot(InjectableObjectProps props) {
+            this.instance = props.isSingleton() ? props.instance : null;
+            this.props = props;
+        }
+    }
+
+    /**
+     * The implementations bound to a key by {@link #addMultiBinding(Class, Class)}: a new binding replaces it when an
+     * implementation is added, so the cached list never becomes stale.
+     */
+    private final class MultiBinding {
+        private final InjectableObjectProps[] elements;
+        private volatile List<Object> cached;
+
+        private MultiBinding(InjectableObjectProps[] elements) {
+            this.elements = elements;
+        }
+
+        private MultiBinding add(InjectableObjectProps props) {
+            InjectableObjectProps[] result = Arrays.copyOf(elements, elements.length + 1);
+            result[elements.length] = props;
+
+            return new MultiBinding(result);
+        }
+    }
+
+    private class InjectableObjectProps {
+        private final ReentrantLock lock = new ReentrantLock();
+        // The path of the thread which holds the lock, see awaitLock()
+        private volatile ResolutionPath owner;
+        private Closure<?> builder;
+        private boolean isSingleton;
+        private Class<?> key;
+        private Class<?> type;
+        private Closure<?> scoped;
+        private volatile ResolutionPlan<?> plan;
+        private volatile Factory<?> generatedFactory;
+        private volatile boolean generatedFactoryLoaded;
+        private volatile Object instance;
+        private Executor executor;
+        private volatile CompletableFuture<Object> future;
+        private ObjectPool<Object> pool;
+        // The order in which the singleton has been completed, see Container#shutdown
+        private long completion;
+        private boolean supplied;
+        private boolean implicit;
+
+        public Closure<?> getBuilder() {
+            return builder;
+        }
+
+        public InjectableObjectProps setBuilder(Closure<?> builder) {
+            this.builder = builder;
+            return this;
+        }
+
+        public boolean isSingleton() {
+            return isSingleton;
+        }
+
+        public InjectableObjectProps setSingleton(boolean singleton) {
+            isSingleton = singleton;
+            return this;
+        }
+
+        /**
+         * Returns the singleton, building it the first time.<br />
+         * The construction is guarded by a lock per definition (not a monitor, so a virtual thread waiting for it
+         * doesn't pin its carrier): the threads which ask the same cold singleton together wait for the first one,
+         * then every following call reads the volatile field without locking.
+         */
+        public Object getInstance() {
+            Object result = instance;
+
+            if (result == null && executor != null) {
+                try {
+                    return getFuture().join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                }
+            }
+
+            if (result == null) {
+                ResolutionPath path = ResolutionPath.current();
+
+                if (!lock.tryLock()) {
+                    awaitLock(path);
+                }
+
+                try {
+                    if (lock.getHoldCount() == 1) {
+                        owner = path;
+                    }
+
+                    result = instance;
+
+                    if (result == null) {
+                        long version = implicit ? version() : 0;
+
+                        try {
+                            result = build();
+                        } catch (RuntimeException e) {
+                            throw implicit ? forget(e, version) : e;
+                        }
+
+                        completion = completions.incrementAndGet();
+                        instance = result;
+                    }
+                } finally {
+                    if (lock.getHoldCount() == 1) {
+                        owner = null;
+                    }
+
+                    lock.unlock();
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Waits for the lock held by another thread which is building the singleton. If that thread is waiting, directly
+         * or through other threads, for a singleton which the current thread is building, the wait would never end.<br />
+         * The wait is published before the check, and a thread publishes the owner of a lock before waiting for another
+         * one: of the threads which close a cycle, the last one to wait finds it, so the others can block.
+         *
+         * @throws DependencyCycleException if the threads wait for each other
+         */
+        private void awaitLock(ResolutionPath path) {
+            path.setWaitingFor(this);
+
+            try {
+                List<Class<?>> cycle = findLockCycle(path);
+
+                if (cycle != null) {
+                    throw new DependencyCycleException(cycle);
+                }
+
+                lock.lock();
+            } finally {
+                path.setWaitingFor(null);
+            }
+        }
+
+        /**
+         * Follows the waits from this definition: its owner waits for a definition, whose owner waits for another one...
+         *
+         * @return The keys of the cycle, from the definition built by the current thread to itself, or null if the
+         * waits don't lead back to the current thread
+         */
+        private List<Class<?>> findLockCycle(ResolutionPath path) {
+            List<Class<?>> keys = new ArrayList<Class<?>>();
+            Set<ResolutionPath> visited = Collections.newSetFromMap(new IdentityHashMap<ResolutionPath, Boolean>());
+            InjectableObjectProps waited = this;
+
+            while (waited != null) {
+                keys.add(waited.key);
+                ResolutionPath waitedOwner = waited.owner;
+
+                if (waitedOwner == path) {
+                    keys.add(0, waited.key);
+                    return keys;
+                }
+
+                // A cycle of the other threads is found by them
+                if (waitedOwner == null || !visited.add(waitedOwner)) {
+                    return null;
+                }
+
+                waited = (InjectableObjectProps) waitedOwner.getWaitingFor();
+            }
+
+            return null;
+        }
+
+        /**
+         * Removes an implicit definition which can't be built because one of its dependencies can't be resolved: the key
+         * is remembered as unresolvable until the next registration, which could define the dependency.
+         *
+         * @param version The {@link #version()} read before the construction
+         * @return The exception to throw
+         */
+        private RuntimeException forget(RuntimeException e, long version) {
+            if (!(rootCause(e) instanceof UnresolvableTypeException)) {
+                return e;
+            }
+
+            updateLock.lock();
+
+            try {
+                injectableObjects.remove(key, this);
+            } finally {
+                updateLock.unlock();
+            }
+
+            return markUnresolvable(key, new UnresolvableTypeException(key, format("There is not a definition for class %s, and its dependencies can't be resolved", key.getName()), e), version);
+        }
+
+        /**
+         * Returns the future of the singleton of an asynchronous definition, starting its construction the first time.
+         * A failed construction is started again by the next call.
+         */
+        public CompletableFuture<Object> getFuture() {
+            CompletableFuture<Object> result = future;
+
+            if (result == null) {
+                CompletableFuture<Object> created = null;
+                lock.lock();
+
+                try {
+                    result = future;
+
+                    if (result == null) {
+                        created = new CompletableFuture<Object>();
+                        future = created;
+                        result = created;
+
+                        if (instance != null) {
+                            created.complete(instance);
+                            return created;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (created != null) {
+                    start(created);
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Builds the singleton on the executor when the asynchronous definitions which it depends on, directly or
+         * through its dependencies, are ready: a task of the executor never waits for another one, so the chain can't
+         * exhaust a bounded executor.
+         */
+        private void start(final CompletableFuture<Object> created) {
+            List<CompletableFuture<Object>> pending = new ArrayList<CompletableFuture<Object>>();
+
+            try {
+                Set<Class<?>> visited = Collections.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>());
+                visited.add(key);
+
+                for (Class<?> dependency : getDependencies()) {
+                    findPending(dependency, visited, pending);
+                }
+
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[pending.size()]))
+                        .thenApplyAsync(new Function<Void, Object>() {
+                            public Object apply(Void result) {
+                                Object value = build();
+                                completion = completions.incrementAndGet();
+                                instance = value;
+
+                                return value;
+                            }
+                        }, executor)
+                        .whenComplete(new BiConsumer<Object, Throwable>() {
+                            public void accept(Object value, Throwable failure) {
+                                if (failure == null) {
+                                    created.complete(value);
+                                } else {
+                                    future = null;
+                                    created.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+                                }
+                            }
+                        });
+            } catch (RuntimeException e) {
+                future = null;
+                created.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * @return true if the object is built by a closure, so the definitions it resolves are unknown. An instance
+         * added by {@link #addInstance(Class, Object)} has no type either, but it is never built.
+         */
+        public boolean isOpaque() {
+            return type == null ? instance == null || completion > 0 : Closure.class.isAssignableFrom(type);
+        }
+
+        public ObjectPool<Object> getPool() {
+            return pool;
+        }
+
+        /**
+         * The objects of the definition will be reused through a pool: they are built by {@link #build()} when the
+         * pool is empty.
+         */
+        public InjectableObjectProps setPool(int maxSize, PoolPolicy policy) {
+            this.isSingleton = false;
+            this.pool = new ObjectPool<Object>(new Closure<Object>() {
+                public Object call() {
+                    return build();
+                }
+            }, maxSize, policy);
+            return this;
+        }
+
+        public Executor getExecutor() {
+            return executor;
+        }
+
+        public InjectableObjectProps setExecutor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @return The classes which will be resolved to build the object, see {@link ResolutionPlan#getDependencies()}
+         */
+        public List<Class<?>> getDependencies() {
+            return getDependencies(null);
+        }
+
+        /**
+         * @return The classes which the object would require, see {@link ResolutionPlan#getDependencies(Predicate)}
+         */
+        public List<Class<?>> getDependencies(Predicate<Class<?>> available) {
+            ResolutionPlan<?> result = getPlan();
+
+            if (result == null) {
+                return Collections.emptyList();
+            }
+
+            return result.getDependencies(available);
+        }
+
+        /**
+         * Builds a new object, tracking the definition in the {@link ResolutionPath} of the current thread.
+         *
+         * @throws DependencyCycleException if the object requires itself
+         */
+        public Object build() {
+            ResolutionPath path = ResolutionPath.current();
+            path.enter(this, key);
+
+            ResolutionListener observer = listener;
+            long start = 0;
+            Throwable failure = null;
+
+            if (observer != null) {
+                observer.constructionStarted(key);
+                start = System.nanoTime();
+            }
+
+            try {
+                return builder.call();
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            } catch (Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                path.exit(this);
+
+                if (observer != null) {
+                    observer.constructionFinished(key, isSingleton, System.nanoTime() - start, failure);
+                }
+            }
+        }
+
+        /**
+         * Sets an instance supplied by the user: the container doesn't own it, so {@link #shutdown()} doesn't release
+         * it.
+         */
+        public InjectableObjectProps setInstance(Object instance) {
+            this.instance = instance;
+            this.supplied = true;
+            return this;
+        }
+
+        /**
+         * @return true if the instance has been supplied by the user, see {@link #addInstance(Class, Object)}
+         */
+        public boolean isSupplied() {
+            return supplied;
+        }
+
+        /**
+         * Marks a definition registered by the container for a class without a definition, see {@link #forget}.
+         */
+        public InjectableObjectProps setImplicit(boolean implicit) {
+            this.implicit = implicit;
+            return this;
+        }
+
+        public Closure<?> getScoped() {
+            return scoped;
+        }
+
+        /**
+         * The objects of the definition will live in the <i>scope</i>: they are built by {@link #build()} when the
+         * scope asks them.
+         */
+        @SuppressWarnings("unchecked")
+        public InjectableObjectProps setScope(Scope scope) {
+            this.isSingleton = false;
+            this.scoped = scope.scope((Class<Object>) key, new Closure<Object>() {
+                public Object call() {
+                    return build();
+                }
+            });
+            return this;
+        }
+
+        public Class<?> getKey() {
+            return key;
+        }
+
+        public InjectableObjectProps setKey(Class<?> key) {
+            this.key = key;
+            return this;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        public InjectableObjectProps setType(Class<?> type) {
+            this.type = type;
+            return this;
+        }
+
+        /**
+         * Looks for the {@link Factory} generated at compile time for the type on the first call, only if the type is
+         * listed in the {@link Factory#INDEX}.
+         *
+         * @return The generated factory, or null if there isn't one
+         */
+        public Factory<?> getGeneratedFactory() {
+            if (!generatedFactoryLoaded) {
+                generatedFactory = loadGeneratedFactory(type);
+                generatedFactoryLoaded = true;
+            }
+
+            return generatedFactory;
+        }
+
+        /**
+         * The plan is computed on the first call and reused by the following ones. It belongs to this definition, so
+         * replacing the definition invalidates it.
+         */
+        public ResolutionPlan<?> getPlan() {
+            ResolutionPlan<?> result = plan;
+
+            if (result == null && type != null) {
+                result = newPlan(type);
+                plan = result;
+            }
+
+            return result;
         }
     }
 }
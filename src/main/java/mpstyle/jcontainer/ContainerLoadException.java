@@ -0,0 +1,42 @@
+package mpstyle.jcontainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a container can't be loaded from a file of definitions, see {@link YamlContainer} and
+ * {@link IniContainer}.
+ */
+public class ContainerLoadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> errors;
+
+    public ContainerLoadException(String source, List<String> errors) {
+        super(format(source, errors));
+        this.errors = Collections.unmodifiableList(new ArrayList<String>(errors));
+    }
+
+    public ContainerLoadException(String source, Throwable cause) {
+        super(format(source, Collections.singletonList(String.valueOf(cause.getMessage()))), cause);
+        this.errors = Collections.singletonList(String.valueOf(cause.getMessage()));
+    }
+
+    /**
+     * @return Every invalid entry of the file, with its position when the format provides it
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    private static String format(String source, List<String> errors) {
+        StringBuilder result = new StringBuilder("Invalid definitions in " + source + ":");
+
+        for (String error : errors) {
+            result.append("\n  ").append(error);
+        }
+
+        return result.toString();
+    }
+}
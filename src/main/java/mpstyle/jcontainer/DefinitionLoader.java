@@ -0,0 +1,120 @@
+package mpstyle.jcontainer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Collects the definitions read by {@link YamlContainer} and {@link IniContainer}, then loads their classes and
+ * registers them in a single batch.
+ */
+final class DefinitionLoader {
+  // Below this number of entries, splitting the class loading between threads costs more than it saves
+  private static final int PARALLEL_THRESHOLD = 64;
+
+  private final String source;
+  private final List<String> keys = new ArrayList<String>();
+  private final List<String> values = new ArrayList<String>();
+  private final List<String> positions = new ArrayList<String>();
+  // The error of each entry which is already invalid in the file, null for the others
+  private final List<String> errors = new ArrayList<String>();
+
+  DefinitionLoader(String source) {
+    this.source = source;
+  }
+
+  /**
+   * @param position Where the entry is in the file, for the error messages
+   */
+  void add(String key, String value, String position) {
+    keys.add(key);
+    values.add(value);
+    positions.add(position);
+    errors.add(null);
+  }
+
+  void error(String position, String message) {
+    keys.add(null);
+    values.add(null);
+    positions.add(position);
+    errors.add(message);
+  }
+
+  /**
+   * @return The container with a singleton definition for each entry
+   * @throws ContainerLoadException with every invalid entry
+   */
+  Container load() {
+    return new Container().addDefinitions(resolve());
+  }
+
+  /**
+   * Loads the classes of the entries, in parallel when there are many of them, without initializing them.
+   *
+   * @return The implementation class by key, in the order of the file
+   * @throws ContainerLoadException with every invalid entry
+   */
+  Map<Class<?>, Class<?>> resolve() {
+    final int size = keys.size();
+    final Class<?>[] keyClasses = new Class<?>[size];
+    final Class<?>[] valueClasses = new Class<?>[size];
+    final String[] failures = new String[size];
+    final ClassLoader classLoader = DefinitionLoader.class.getClassLoader();
+
+    IntStream indexes = IntStream.range(0, size);
+
+    if (size >= PARALLEL_THRESHOLD) {
+      indexes = indexes.parallel();
+    }
+
+    // Every index writes only its own slots, and forEach returns after all of them
+    indexes.forEach(new IntConsumer() {
+      public void accept(int i) {
+        if (errors.get(i) != null) {
+          failures[i] = errors.get(i);
+          return;
+        }
+
+        String key = keys.get(i);
+        String value = values.get(i);
+
+        if (value == null || value.isEmpty()) {
+          failures[i] = String.format("missing the class of %s", key);
+          return;
+        }
+
+        try {
+          keyClasses[i] = Class.forName(key, false, classLoader);
+          valueClasses[i] = Class.forName(value, false, classLoader);
+        } catch (ClassNotFoundException | LinkageError e) {
+          failures[i] = String.format("class not found: %s", e.getMessage());
+          return;
+        }
+
+        if (!keyClasses[i].isAssignableFrom(valueClasses[i])) {
+          failures[i] = String.format("%s is not a %s", value, key);
+        }
+      }
+    });
+
+    Map<Class<?>, Class<?>> definitions = new LinkedHashMap<Class<?>, Class<?>>(size * 2);
+    List<String> invalid = new ArrayList<String>();
+
+    for (int i = 0; i < size; i++) {
+      if (failures[i] != null) {
+        invalid.add(positions.get(i) + ": " + failures[i]);
+      } else {
+        definitions.put(keyClasses[i], valueClasses[i]);
+      }
+    }
+
+    if (!invalid.isEmpty()) {
+      throw new ContainerLoadException(source, invalid);
+    }
+
+    return definitions;
+  }
+}
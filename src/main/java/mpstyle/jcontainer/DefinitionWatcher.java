@@ -0,0 +1,144 @@
+package mpstyle.jcontainer;
+
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reloads the definitions of a YAML or INI file (see {@link YamlContainer} and {@link IniContainer}) into a live
+ * {@link Container} every time the file changes.<br />
+ * The file is parsed on a daemon thread, off the request path, and the new definitions are published at once by
+ * {@link Container#updateDefinitions(Map, Set)}: the bindings which didn't change keep their singletons and the keys
+ * removed from the file are removed from the container. An invalid file is logged and ignored, the container keeps the
+ * previous definitions.
+ */
+public class DefinitionWatcher implements Closeable {
+    private final static Logger LOGGER = LogManager.getRootLogger();
+    // An editor saves a file with several events: the reload waits for them to settle
+    private static final long QUIET_MILLIS = 100;
+
+    private final Container container;
+    private final File file;
+    private final WatchService watchService;
+    private final Thread thread;
+    // Written by the watcher thread only, after the first load
+    private Set<Class<?>> keys = Collections.emptySet();
+    private volatile int loadCount;
+
+    private DefinitionWatcher(Container container, File file) throws IOException {
+        this.container = container;
+        this.file = file;
+        this.watchService = file.toPath().getFileSystem().newWatchService();
+
+        file.getParentFile().toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "jcontainer-watcher-" + file.getName());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Loads the definitions of the <i>file</i> into the <i>container</i>, then starts watching the file.
+     *
+     * @param container The container to update
+     * @param file      A YAML file, or an INI file if its extension is <i>.ini</i>
+     * @return The watcher, to close when the container is not used anymore
+     * @throws ContainerLoadException if the file is invalid now
+     */
+    public static DefinitionWatcher watch(Container container, File file) throws IOException {
+        DefinitionWatcher watcher = new DefinitionWatcher(container, file.getAbsoluteFile());
+
+        try {
+            watcher.reload();
+        } catch (RuntimeException e) {
+            watcher.close();
+            throw e;
+        }
+
+        watcher.thread.start();
+
+        return watcher;
+    }
+
+    /**
+     * @return How many times the definitions have been loaded, the first load included
+     */
+    public int getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * Stops watching the file: the container keeps the last definitions.
+     */
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void watch() {
+        while (true) {
+            try {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getName().equals(String.valueOf(event.context()))) {
+                        changed = true;
+                    }
+                }
+
+                key.reset();
+
+                if (!changed) {
+                    continue;
+                }
+
+                Thread.sleep(QUIET_MILLIS);
+
+                for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                    pending.pollEvents();
+                    pending.reset();
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            try {
+                reload();
+            } catch (RuntimeException e) {
+                LOGGER.warn(format("The definitions of %s have not been reloaded", file.getPath()), e);
+            }
+        }
+    }
+
+    private void reload() {
+        DefinitionLoader loader = file.getName().toLowerCase().endsWith(".ini") ? IniContainer.read(file) : YamlContainer.read(file);
+        Map<Class<?>, Class<?>> definitions = loader.resolve();
+
+        Set<Class<?>> removed = new HashSet<Class<?>>(keys);
+        removed.removeAll(definitions.keySet());
+
+        container.updateDefinitions(definitions, removed);
+        keys = new HashSet<Class<?>>(definitions.keySet());
+        loadCount++;
+    }
+}
@@ -0,0 +1,92 @@
+package mpstyle.jcontainer;
+
+import static java.lang.String.format;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+
+/**
+ * A constructor parameter or a field marked by {@link mpstyle.jcontainer.annotation.Inject}: the key to resolve and how
+ * to inject it.
+ */
+final class Dependency {
+    enum Kind {
+        /**
+         * The object is resolved when the owner is built.
+         */
+        INSTANCE,
+        /**
+         * A {@link Closure} of the key: the object is resolved on the first call, see {@link Container#getProvider(Class)}.
+         */
+        PROVIDER,
+        /**
+         * A proxy of the key: the object is resolved on the first method call, see {@link Container#getLazy(Class)}.
+         */
+        PROXY
+    }
+
+    private final Class<?> key;
+    private final Kind kind;
+
+    private Dependency(Class<?> key, Kind kind) {
+        this.key = key;
+        this.kind = kind;
+    }
+
+    /**
+     * @param type    The generic type of the parameter or of the field
+     * @param rawType The class of the parameter or of the field
+     * @param lazy    true if the field is marked by {@link mpstyle.jcontainer.annotation.Lazy}
+     */
+    static Dependency of(Type type, Class<?> rawType, boolean lazy) {
+        if (rawType == Closure.class && type instanceof ParameterizedType) {
+            Class<?> key = rawClass(((ParameterizedType) type).getActualTypeArguments()[0]);
+
+            if (key != null) {
+                return new Dependency(key, Kind.PROVIDER);
+            }
+        }
+
+        if (lazy) {
+            if (!rawType.isInterface()) {
+                throw new IllegalArgumentException(format("A lazy dependency must be an interface: %s is not", rawType.getName()));
+            }
+
+            return new Dependency(rawType, Kind.PROXY);
+        }
+
+        return new Dependency(rawType, Kind.INSTANCE);
+    }
+
+    /**
+     * @return The dependency of the <i>key</i> injected as <i>kind</i>, as read from a {@link ResolutionIndex}
+     */
+    static Dependency of(Class<?> key, Kind kind) {
+        return new Dependency(key, kind);
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+
+        if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        }
+
+        if (type instanceof WildcardType) {
+            return rawClass(((WildcardType) type).getUpperBounds()[0]);
+        }
+
+        return null;
+    }
+
+    Class<?> getKey() {
+        return key;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+}
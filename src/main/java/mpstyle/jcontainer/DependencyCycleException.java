@@ -0,0 +1,40 @@
+package mpstyle.jcontainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when the construction of an object requires, directly or not, the object itself.
+ */
+public class DependencyCycleException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Class<?>> path;
+
+    public DependencyCycleException(List<Class<?>> path) {
+        super("Dependency cycle: " + format(path));
+        this.path = Collections.unmodifiableList(new ArrayList<Class<?>>(path));
+    }
+
+    /**
+     * @return The keys of the cycle, the first and the last are the same: A, B, A
+     */
+    public List<Class<?>> getPath() {
+        return path;
+    }
+
+    static String format(List<Class<?>> path) {
+        StringBuilder result = new StringBuilder();
+
+        for (Class<?> key : path) {
+            if (result.length() > 0) {
+                result.append(" -> ");
+            }
+
+            result.append(key.getName());
+        }
+
+        return result.toString();
+    }
+}
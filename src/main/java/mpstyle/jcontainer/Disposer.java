@@ -0,0 +1,70 @@
+package mpstyle.jcontainer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import mpstyle.jcontainer.annotation.Dispose;
+
+/**
+ * Releases the resources of the singletons on {@link Container#shutdown()}: the methods marked by {@link Dispose},
+ * then {@link AutoCloseable#close()}.
+ */
+final class Disposer {
+    private Disposer() {
+    }
+
+    static boolean isDisposable(Object object) {
+        return object instanceof AutoCloseable || !disposeMethods(object.getClass()).isEmpty();
+    }
+
+    static void dispose(Object object) throws Exception {
+        for (Method method : disposeMethods(object.getClass())) {
+            try {
+                method.invoke(object);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+
+                throw (Error) e.getCause();
+            }
+        }
+
+        if (object instanceof AutoCloseable) {
+            ((AutoCloseable) object).close();
+        }
+    }
+
+    /**
+     * @return The methods marked by {@link Dispose} of the <i>type</i> and of its superclasses, the overridden ones
+     * once. A marked <i>close()</i> of an {@link AutoCloseable} is left to {@link #dispose(Object)}.
+     */
+    private static List<Method> disposeMethods(Class<?> type) {
+        List<Method> result = new ArrayList<Method>();
+        Set<String> names = new HashSet<String>();
+        boolean closeable = AutoCloseable.class.isAssignableFrom(type);
+
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getAnnotation(Dispose.class) == null || method.getParameterTypes().length > 0) {
+                    continue;
+                }
+
+                if (closeable && method.getName().equals("close")) {
+                    continue;
+                }
+
+                if (names.add(method.getName())) {
+                    method.setAccessible(true);
+                    result.add(method);
+                }
+            }
+        }
+
+        return result;
+    }
+}
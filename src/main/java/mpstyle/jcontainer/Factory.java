@@ -0,0 +1,40 @@
+package mpstyle.jcontainer;
+
+/**
+ * Builds an instance of a class without reflection.<br />
+ * The factories are generated at compile time by the <i>jcontainer-processor</i> annotation processor, for each class
+ * with a constructor or a field marked by {@link mpstyle.jcontainer.annotation.Inject}, and listed in the {@link #INDEX}
+ * resource. The {@link Container} loads the factory of a class listed there by the name returned by
+ * {@link #nameOf(String)}, and it uses reflection for the other classes.
+ *
+ * @param <T> The type of the class to instantiate
+ */
+public interface Factory<T> {
+    /**
+     * The suffix of the name of the generated factories.
+     */
+    String SUFFIX = "_JContainerFactory";
+
+    /**
+     * The resource which lists the binary names of the classes with a generated factory, one per line: each module
+     * compiled with the processor has its own.
+     */
+    String INDEX = "META-INF/jcontainer/factories";
+
+    /**
+     * Returns an instance of <i>T</i>, resolving its dependencies through the <i>container</i>.
+     *
+     * @param container The container which resolves the constructor parameters and the injectable fields
+     * @return The instance
+     */
+    T create(Container container);
+
+    /**
+     * @param binaryName The binary name of the class to instantiate, see {@link Class#getName()}
+     * @return The binary name of the generated factory: the factory of a nested class is a top level class of the same
+     * package.
+     */
+    static String nameOf(String binaryName) {
+        return binaryName.replace('$', '_') + SUFFIX;
+    }
+}
@@ -1,34 +1,64 @@
 package mpstyle.jcontainer;
 
+import java.io.BufferedReader;
 import java.io.File;
-import org.ini4j.Profile;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import org.ini4j.Wini;
+import org.ini4j.spi.IniHandler;
+import org.ini4j.spi.IniParser;
 
 /**
- * Utility class to load a container from a INI file which collects definition.
+ * Utility class to load a container from a INI file which collects definition.<br />
+ * The options of every section are read as a stream, with the same syntax of {@link Wini}.
  */
 public class IniContainer {
   public static Container from(String filename) {
     return from(new File(filename));
   }
 
+  /**
+   * @throws ContainerLoadException if the file can't be read, or with every invalid entry
+   */
   public static Container from(File file) {
-    try {
-      Wini ini = new Wini(file);
-      Container c = new Container();
-
-      for (String sectionName : ini.keySet()) {
-        Profile.Section section = ini.get(sectionName);
-        for (String optionKey : section.keySet()) {
-          Class key = Class.forName(optionKey);
-          Class clazz = Class.forName(section.get(optionKey));
-          c.addDefinition(key, clazz);
+    return read(file).load();
+  }
+
+  /**
+   * @return The entries of the file, whose classes are not loaded yet
+   * @throws ContainerLoadException if the file can't be read
+   */
+  static DefinitionLoader read(File file) {
+    final DefinitionLoader loader = new DefinitionLoader(file.getPath());
+
+    try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      IniParser.newInstance(new Wini().getConfig()).parse(reader, new IniHandler() {
+        public void startIni() {
+        }
+
+        public void endIni() {
+        }
+
+        public void startSection(String sectionName) {
         }
-      }
 
-      return c;
-    } catch (Exception e) {
-      return null;
+        public void endSection() {
+        }
+
+        public void handleComment(String comment) {
+        }
+
+        public void handleOption(String optionName, String optionValue) {
+          loader.add(optionName, optionValue, "option " + optionName);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      throw new ContainerLoadException(file.getPath(), e);
     }
+
+    return loader;
   }
 }
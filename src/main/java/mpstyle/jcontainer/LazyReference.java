@@ -0,0 +1,43 @@
+package mpstyle.jcontainer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Resolves an object through the container on the first call, then keeps it.<br />
+ * It is both the {@link Closure} returned by {@link Container#getProvider(Class)} and the handler of the proxies
+ * returned by {@link Container#getLazy(Class)}. Two threads calling it together for the first time could resolve the
+ * object twice: only one of the results is kept.
+ *
+ * @param <T> The type of the object
+ */
+final class LazyReference<T> implements Closure<T>, InvocationHandler {
+    private final Container container;
+    private final Class<T> key;
+    private volatile T instance;
+
+    LazyReference(Container container, Class<T> key) {
+        this.container = container;
+        this.key = key;
+    }
+
+    public T call() {
+        T result = instance;
+
+        if (result == null) {
+            result = container.get(key);
+            instance = result;
+        }
+
+        return result;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(call(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package mpstyle.jcontainer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The idle objects of a pooled definition, see {@link Container#addPooledDefinition(Class, Class, int, PoolPolicy)}.
+ * <br />
+ * The idle objects are kept in an array of slots taken and filled by CAS, without locking: each thread starts looking
+ * from its own slot, so the threads which borrow and return together rarely compete for the same one.
+ *
+ * @param <T> The type of the objects
+ */
+final class ObjectPool<T> {
+    private final Closure<T> factory;
+    private final AtomicReferenceArray<T> idle;
+    // Not null with the WAIT policy: a permit for each object which can be borrowed
+    private final Semaphore permits;
+
+    ObjectPool(Closure<T> factory, int maxSize, PoolPolicy policy) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The size of a pool must be at least 1: " + maxSize);
+        }
+
+        this.factory = factory;
+        this.idle = new AtomicReferenceArray<T>(maxSize);
+        this.permits = policy == PoolPolicy.WAIT ? new Semaphore(maxSize) : null;
+    }
+
+    /**
+     * @return An idle object, or a new one if there isn't one
+     */
+    Pooled<T> borrow() {
+        if (permits != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        try {
+            T object = poll();
+
+            if (object == null) {
+                object = factory.call();
+            }
+
+            return new Pooled<T>(this, object);
+        } catch (RuntimeException | Error e) {
+            if (permits != null) {
+                permits.release();
+            }
+
+            throw e;
+        }
+    }
+
+    void release(T object) {
+        offer(object);
+
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private T poll() {
+        int start = stripe();
+
+        for (int i = 0; i < idle.length(); i++) {
+            int index = (start + i) % idle.length();
+            T object = idle.get(index);
+
+            if (object != null && idle.compareAndSet(index, object, null)) {
+                return object;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return false if the pool is full: the object is dropped
+     */
+    private boolean offer(T object) {
+        int start = stripe();
+
+        for (int i = 0; i < idle.length(); i++) {
+            int index = (start + i) % idle.length();
+
+            if (idle.get(index) == null && idle.compareAndSet(index, null, object)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private int stripe() {
+        return (int) (Thread.currentThread().getId() % idle.length());
+    }
+}
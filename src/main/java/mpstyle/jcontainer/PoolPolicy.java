@@ -0,0 +1,16 @@
+package mpstyle.jcontainer;
+
+/**
+ * What {@link Container#borrow(Class)} does when the pool of a definition has no idle object, see
+ * {@link Container#addPooledDefinition(Class, Class, int, PoolPolicy)}.
+ */
+public enum PoolPolicy {
+    /**
+     * A new object is built. When it is returned, it is kept only if the pool has room for it.
+     */
+    BUILD,
+    /**
+     * The caller waits for an object to be returned, if the maximum number of objects is already borrowed.
+     */
+    WAIT
+}
@@ -0,0 +1,46 @@
+package mpstyle.jcontainer;
+
+/**
+ * An object borrowed from a pool by {@link Container#borrow(Class)}: closing it returns the object to the pool.
+ *
+ * <pre>
+ * try (Pooled&lt;Codec&gt; codec = container.borrow(Codec.class)) {
+ *     codec.get().encode(...);
+ * }
+ * </pre>
+ *
+ * It is meant to be used by the thread which borrowed it, and the object must not be used after the close.
+ *
+ * @param <T> The type of the object
+ */
+public final class Pooled<T> implements AutoCloseable {
+    private final ObjectPool<T> pool;
+    private final T object;
+    private boolean closed;
+
+    Pooled(ObjectPool<T> pool, T object) {
+        this.pool = pool;
+        this.object = object;
+    }
+
+    /**
+     * @throws IllegalStateException if the object has already been returned
+     */
+    public T get() {
+        if (closed) {
+            throw new IllegalStateException("The object has already been returned to the pool");
+        }
+
+        return object;
+    }
+
+    /**
+     * Returns the object to the pool; the following calls do nothing.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            pool.release(object);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package mpstyle.jcontainer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The binary index written by {@link Container#writeIndex(File, String)}: the definitions in topological order, each
+ * with the constructor which built its objects and the fields marked by {@link mpstyle.jcontainer.annotation.Inject}.
+ * <br />
+ * Loading it with {@link Container#readIndex(File, String)} looks up those members by name instead of scanning the
+ * declared constructors, parameter types and annotations of every class.
+ */
+public final class ResolutionIndex {
+    private static final int MAGIC = 0x4A434958;
+    private static final int VERSION = 1;
+
+    private ResolutionIndex() {
+    }
+
+    /**
+     * Hashes the class path, with the size and the modification time of each archive and of each class file of the
+     * class directories, and the content of the <i>configs</i>.
+     *
+     * @param configs The files of definitions, for example the YAML or INI files
+     * @return The hash to pass to {@link Container#writeIndex(File, String)} and {@link Container#readIndex(File, String)}
+     */
+    public static String hash(File... configs) throws IOException {
+        return hash(System.getProperty("java.class.path", ""), configs);
+    }
+
+    static String hash(String classPath, File... configs) throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String entry : classPath.split(File.pathSeparator)) {
+            File file = new File(entry);
+            digest.update(entry.getBytes(StandardCharsets.UTF_8));
+
+            if (file.isFile()) {
+                updateFile(digest, file);
+            } else if (file.isDirectory()) {
+                // A recompiled class could have other constructors or injectable fields
+                for (Path classFile : findClassFiles(file.toPath())) {
+                    digest.update(file.toPath().relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                    updateFile(digest, classFile.toFile());
+                }
+            }
+        }
+
+        for (File config : configs) {
+            digest.update(config.getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(config.toPath()));
+        }
+
+        StringBuilder result = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return result.toString();
+    }
+
+    private static void updateFile(MessageDigest digest, File file) {
+        digest.update(Long.toString(file.length()).getBytes(StandardCharsets.UTF_8));
+        digest.update(Long.toString(file.lastModified()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The class files under the <i>directory</i>, sorted so the hash doesn't depend on the file system order
+     */
+    private static List<Path> findClassFiles(Path directory) throws IOException {
+        final List<Path> result = new ArrayList<Path>();
+
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && file.getFileName().toString().endsWith(".class")) {
+                    result.add(file);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Collections.sort(result);
+
+        return result;
+    }
+
+    static void writeHeader(DataOutput out, String hash) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(hash);
+    }
+
+    /**
+     * @return false if the index has been written by another version or for another hash
+     */
+    static boolean readHeader(DataInput in, String hash) throws IOException {
+        return in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(hash);
+    }
+
+    /**
+     * Writes the chosen constructor and the injectable fields of the <i>plan</i>. A plan without a constructor which
+     * succeeded is written as missing, so it will be computed again.
+     */
+    static void writePlan(DataOutput out, ResolutionPlan<?> plan) throws IOException {
+        int chosen = plan == null ? -1 : plan.getChosen();
+        out.writeBoolean(chosen >= 0);
+
+        if (chosen < 0) {
+            return;
+        }
+
+        Class<?>[] parameterTypes = plan.getConstructor(chosen).getParameterTypes();
+        Dependency[] parameters = plan.getParameters(chosen);
+        out.writeShort(parameterTypes.length);
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            out.writeUTF(parameterTypes[i].getName());
+            writeDependency(out, parameters[i]);
+        }
+
+        Field[] fields = plan.getInjectableFields();
+        Dependency[] fieldDependencies = plan.getFieldDependencies();
+        out.writeShort(fields.length);
+
+        for (int i = 0; i < fields.length; i++) {
+            out.writeUTF(fields[i].getName());
+            writeDependency(out, fieldDependencies[i]);
+        }
+    }
+
+    /**
+     * @return The plan of the <i>type</i>, or null if it has been written as missing
+     */
+    static <T> ResolutionPlan<T> readPlan(DataInput in, Class<T> type, ClassLoader loader) throws IOException, ReflectiveOperationException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        Class<?>[] parameterTypes = new Class<?>[in.readShort()];
+        Dependency[] parameters = new Dependency[parameterTypes.length];
+
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterTypes[i] = Class.forName(in.readUTF(), false, loader);
+            parameters[i] = readDependency(in, loader);
+        }
+
+        Constructor<T> constructor = type.getDeclaredConstructor(parameterTypes);
+        Field[] fields = new Field[in.readShort()];
+        Dependency[] fieldDependencies = new Dependency[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = type.getDeclaredField(in.readUTF());
+            fields[i].setAccessible(true);
+            fieldDependencies[i] = readDependency(in, loader);
+        }
+
+        return new ResolutionPlan<T>(type, constructor, parameters, fields, fieldDependencies);
+    }
+
+    private static void writeDependency(DataOutput out, Dependency dependency) throws IOException {
+        out.writeByte(dependency.getKind().ordinal());
+        out.writeUTF(dependency.getKey().getName());
+    }
+
+    private static Dependency readDependency(DataInput in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        Dependency.Kind kind = Dependency.Kind.values()[in.readByte()];
+
+        return Dependency.of(Class.forName(in.readUTF(), false, loader), kind);
+    }
+}
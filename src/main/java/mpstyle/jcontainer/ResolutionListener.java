@@ -0,0 +1,59 @@
+package mpstyle.jcontainer;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Receives the events of the resolutions of a {@link Container}, see
+ * {@link Container#setResolutionListener(ResolutionListener)}.<br />
+ * The methods are called by the threads which resolve the objects, so they must be thread safe and fast. Every method
+ * does nothing by default.
+ */
+public interface ResolutionListener {
+    /**
+     * An existing singleton has been returned.
+     *
+     * @param key The requested key
+     */
+    default void singletonHit(Class<?> key) {
+    }
+
+    /**
+     * The container is going to build a new object: a singleton which doesn't exist yet, a new instance, or the object
+     * of a scope.
+     *
+     * @param key The key of the definition
+     */
+    default void constructionStarted(Class<?> key) {
+    }
+
+    /**
+     * The construction started by {@link #constructionStarted(Class)} is finished.
+     *
+     * @param key          The key of the definition
+     * @param singleton    true if the object is a singleton, so the construction is a singleton miss
+     * @param elapsedNanos The construction time, including the resolution of the dependencies
+     * @param failure      The error thrown by the construction, or null if it succeeded
+     */
+    default void constructionFinished(Class<?> key, boolean singleton, long elapsedNanos, Throwable failure) {
+    }
+
+    /**
+     * A constructor built the object, through reflection or through a compiled factory. The objects built by a
+     * generated factory or by a closure don't report it.
+     *
+     * @param type        The class instantiated
+     * @param constructor The constructor which succeeded
+     */
+    default void constructorChosen(Class<?> type, Constructor<?> constructor) {
+    }
+
+    /**
+     * A constructor failed, the container will try the next one.
+     *
+     * @param type        The class to instantiate
+     * @param constructor The failed constructor
+     * @param cause       The error thrown by the constructor or by the resolution of its parameters
+     */
+    default void constructorRejected(Class<?> type, Constructor<?> constructor, Throwable cause) {
+    }
+}
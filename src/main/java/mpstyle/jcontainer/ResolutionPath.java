@@ -0,0 +1,65 @@
+package mpstyle.jcontainer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The definitions which the current thread is building, from the outermost one.<br />
+ * A definition which is entered while it is still in the path is a cycle: the check is a single identity lookup, so
+ * {@link Container#get(Class)} can abort straight away instead of recursing until the stack overflows.<br />
+ * The path records also the singleton which the thread is waiting for, while another thread builds it: the container
+ * follows these waits to find a cycle built by several threads.
+ */
+final class ResolutionPath {
+    private static final ThreadLocal<ResolutionPath> CURRENT = new ThreadLocal<ResolutionPath>() {
+        @Override
+        protected ResolutionPath initialValue() {
+            return new ResolutionPath();
+        }
+    };
+
+    private final List<Class<?>> keys = new ArrayList<Class<?>>();
+    private final IdentityHashMap<Object, Integer> definitions = new IdentityHashMap<Object, Integer>();
+    // Read by the other threads
+    private volatile Object waitingFor;
+
+    static ResolutionPath current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param definition The definition to build: definitions of different containers never collide
+     * @param key        The key of the definition
+     * @throws DependencyCycleException if the definition is already in the path
+     */
+    void enter(Object definition, Class<?> key) {
+        Integer index = definitions.get(definition);
+
+        if (index != null) {
+            List<Class<?>> cycle = new ArrayList<Class<?>>(keys.subList(index, keys.size()));
+            cycle.add(key);
+
+            throw new DependencyCycleException(cycle);
+        }
+
+        definitions.put(definition, keys.size());
+        keys.add(key);
+    }
+
+    void exit(Object definition) {
+        definitions.remove(definition);
+        keys.remove(keys.size() - 1);
+    }
+
+    /**
+     * @return The definition which the thread is waiting for, or null
+     */
+    Object getWaitingFor() {
+        return waitingFor;
+    }
+
+    void setWaitingFor(Object definition) {
+        waitingFor = definition;
+    }
+}
@@ -0,0 +1,232 @@
+package mpstyle.jcontainer;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import mpstyle.jcontainer.annotation.Inject;
+import mpstyle.jcontainer.annotation.Lazy;
+
+/**
+ * The reflective data needed by the {@link Container} to instantiate a class: the declared constructors with their
+ * parameter types (the one marked by {@link Inject} first), the constructor which succeeded the last time and the fields
+ * marked by {@link Inject}.<br />
+ * A plan is computed once per definition and it is dropped together with the definition when this one is replaced.
+ *
+ * @param <T> The type of the class to instantiate
+ */
+final class ResolutionPlan<T> {
+    private final Class<T> type;
+    private final Constructor<T>[] constructors;
+    private final Dependency[][] parameters;
+    private final Field[] injectableFields;
+    private final Dependency[] fieldDependencies;
+    private volatile int chosen = -1;
+    private volatile CompiledFactory<T> factory;
+    private volatile boolean compilable = true;
+
+    @SuppressWarnings("unchecked")
+    ResolutionPlan(Class<T> type) {
+        this.type = type;
+        this.constructors = (Constructor<T>[]) type.getDeclaredConstructors();
+
+        // The constructor marked by @Inject is tried first
+        for (int i = 1; i < constructors.length; i++) {
+            if (constructors[i].getAnnotation(Inject.class) != null) {
+                Constructor<T> injectable = constructors[i];
+                System.arraycopy(constructors, 0, constructors, 1, i);
+                constructors[0] = injectable;
+                break;
+            }
+        }
+
+        this.parameters = new Dependency[constructors.length][];
+
+        for (int i = 0; i < constructors.length; i++) {
+            Class<?>[] rawTypes = constructors[i].getParameterTypes();
+            Type[] genericTypes = constructors[i].getGenericParameterTypes();
+
+            // The generic types of some synthetic parameters (the outer instance of an inner class) are not reported
+            if (genericTypes.length != rawTypes.length) {
+                genericTypes = rawTypes;
+            }
+
+            parameters[i] = new Dependency[rawTypes.length];
+
+            for (int j = 0; j < rawTypes.length; j++) {
+                parameters[i][j] = Dependency.of(genericTypes[j], rawTypes[j], false);
+            }
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+
+        for (Field field : type.getDeclaredFields()) {
+            if (field.getAnnotation(Inject.class) != null) {
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+
+        this.injectableFields = fields.toArray(new Field[fields.size()]);
+        this.fieldDependencies = new Dependency[injectableFields.length];
+
+        for (int i = 0; i < injectableFields.length; i++) {
+            Field field = injectableFields[i];
+            fieldDependencies[i] = Dependency.of(field.getGenericType(), field.getType(), field.getAnnotation(Lazy.class) != null);
+        }
+    }
+
+    /**
+     * A plan read from a {@link ResolutionIndex}: it has only the constructor which succeeded when the index was
+     * written, and it is already chosen.
+     */
+    @SuppressWarnings("unchecked")
+    ResolutionPlan(Class<T> type, Constructor<T> constructor, Dependency[] parameters, Field[] injectableFields, Dependency[] fieldDependencies) {
+        this.type = type;
+        this.constructors = (Constructor<T>[]) new Constructor<?>[]{constructor};
+        this.parameters = new Dependency[][]{parameters};
+        this.injectableFields = injectableFields;
+        this.fieldDependencies = fieldDependencies;
+        this.chosen = 0;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    int getConstructorCount() {
+        return constructors.length;
+    }
+
+    Constructor<T> getConstructor(int index) {
+        return constructors[index];
+    }
+
+    Dependency[] getParameters(int index) {
+        return parameters[index];
+    }
+
+    /**
+     * @return The index of the constructor which succeeded the last time, or -1 if no constructor succeeded yet.
+     */
+    int getChosen() {
+        return chosen;
+    }
+
+    void setChosen(int index) {
+        if (chosen != index) {
+            chosen = index;
+            factory = null;
+        }
+    }
+
+    /**
+     * @return The {@link CompiledFactory} of the chosen constructor, or null if no constructor succeeded yet or if the
+     * members of the class can not be compiled.
+     */
+    CompiledFactory<T> getFactory() {
+        CompiledFactory<T> result = factory;
+        int index = chosen;
+
+        if (result == null && compilable && index >= 0) {
+            try {
+                result = CompiledFactory.compile(this, index);
+                factory = result;
+            } catch (IllegalAccessException e) {
+                compilable = false;
+            }
+        }
+
+        return result;
+    }
+
+    Field[] getInjectableFields() {
+        return injectableFields;
+    }
+
+    /**
+     * @return The dependencies of the fields marked by {@link Inject}, in the same order of
+     * {@link #getInjectableFields()}
+     */
+    Dependency[] getFieldDependencies() {
+        return fieldDependencies;
+    }
+
+    /**
+     * @return The classes which will be resolved to build an instance: the parameters of the chosen constructor (or of
+     * the first one, if no constructor succeeded yet) and the fields marked by {@link Inject}. The lazy dependencies
+     * are not included, because they are resolved after the construction.
+     */
+    List<Class<?>> getDependencies() {
+        return getDependencies(null);
+    }
+
+    /**
+     * @param available Tells if a class can be resolved, or null
+     * @return The dependencies as {@link #getDependencies()} but, if no constructor succeeded yet, the parameters of the
+     * constructor which the container would choose: the first one, in the order they are tried, whose parameters are
+     * all <i>available</i>. If there isn't one, the parameters of the first constructor.
+     */
+    List<Class<?>> getDependencies(Predicate<Class<?>> available) {
+        List<Class<?>> dependencies = new ArrayList<Class<?>>();
+        int index = chosen;
+
+        if (index < 0 && constructors.length > 0) {
+            index = available == null ? 0 : findSatisfiable(available);
+        }
+
+        if (index >= 0) {
+            addKeys(dependencies, parameters[index], false);
+        }
+
+        addKeys(dependencies, fieldDependencies, false);
+
+        return dependencies;
+    }
+
+    /**
+     * @return The classes which could be resolved to build an instance, lazily or not, by any constructor and by the
+     * fields marked by {@link Inject}.
+     */
+    List<Class<?>> getAllDependencies() {
+        List<Class<?>> dependencies = new ArrayList<Class<?>>();
+
+        for (Dependency[] constructorParameters : parameters) {
+            addKeys(dependencies, constructorParameters, true);
+        }
+
+        addKeys(dependencies, fieldDependencies, true);
+
+        return dependencies;
+    }
+
+    private int findSatisfiable(Predicate<Class<?>> available) {
+        for (int i = 0; i < parameters.length; i++) {
+            boolean satisfiable = true;
+
+            for (Dependency dependency : parameters[i]) {
+                if (dependency.getKind() == Dependency.Kind.INSTANCE && !available.test(dependency.getKey())) {
+                    satisfiable = false;
+                    break;
+                }
+            }
+
+            if (satisfiable) {
+                return i;
+            }
+        }
+
+        return 0;
+    }
+
+    private static void addKeys(List<Class<?>> keys, Dependency[] dependencies, boolean lazy) {
+        for (Dependency dependency : dependencies) {
+            if (lazy || dependency.getKind() == Dependency.Kind.INSTANCE) {
+                keys.add(dependency.getKey());
+            }
+        }
+    }
+}
@@ -1,24 +1,121 @@
 package mpstyle.jcontainer;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
- * Utily class, create a singleton container.
+ * Utily class, create a singleton container.<br />
+ * Besides the global container, it keeps a registry of named containers, for example one for each tenant. No method
+ * takes a lock: the threads which create the same container together agree on the first one published.
  */
 public class UniqueContainer {
-    private static Container instance = null;
+    private static final AtomicReference<Container> instance = new AtomicReference<Container>();
+    private static final ConcurrentHashMap<String, Container> containers = new ConcurrentHashMap<String, Container>();
+
+    /**
+     * @return The global container, created with autoInstance set to <i>true</i> if it doesn't exist yet
+     */
+    public static Container getInstance() {
+        Container result = instance.get();
+
+        if (result == null) {
+            instance.compareAndSet(null, new Container());
+            result = instance.get();
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The global container, created with the <i>autoInstance</i> if it doesn't exist yet
+     * @throws IllegalStateException if the global container exists with another autoInstance
+     */
+    public static Container getInstance(boolean autoInstance) {
+        Container result = instance.get();
+
+        if (result == null) {
+            instance.compareAndSet(null, new Container(autoInstance));
+            result = instance.get();
+        }
+
+        return checkAutoInstance("The global container", result, autoInstance);
+    }
+
+    /**
+     * @return The container registered with the <i>name</i>, created with autoInstance set to <i>true</i> if it
+     * doesn't exist yet
+     */
+    public static Container getInstance(String name) {
+        Container result = containers.get(name);
+
+        if (result == null) {
+            result = putIfAbsent(name, new Container());
+        }
 
-    public static synchronized Container getInstance() {
-        if (instance == null) {
-            instance = new Container();
+        return result;
+    }
+
+    /**
+     * @return The container registered with the <i>name</i>, created with the <i>autoInstance</i> if it doesn't exist
+     * yet
+     * @throws IllegalStateException if the container exists with another autoInstance
+     */
+    public static Container getInstance(String name, boolean autoInstance) {
+        Container result = containers.get(name);
+
+        if (result == null) {
+            result = putIfAbsent(name, new Container(autoInstance));
         }
 
-        return instance;
+        return checkAutoInstance("The container " + name, result, autoInstance);
+    }
+
+    /**
+     * @return The container registered with the <i>name</i>, or null if there isn't one
+     */
+    public static Container find(String name) {
+        return containers.get(name);
+    }
+
+    /**
+     * Registers the <i>container</i> with the <i>name</i>.
+     *
+     * @return false if another container is already registered with the name: the registry is not changed
+     */
+    public static boolean register(String name, Container container) {
+        return containers.putIfAbsent(name, container) == null;
+    }
+
+    /**
+     * Removes the container registered with the <i>name</i>: the threads which already got it can still use it.
+     *
+     * @return The removed container, or null if there isn't one
+     */
+    public static Container remove(String name) {
+        return containers.remove(name);
+    }
+
+    /**
+     * @return The names of the registered containers, at the time of the call
+     */
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(new HashSet<String>(containers.keySet()));
+    }
+
+    private static Container putIfAbsent(String name, Container container) {
+        Container existing = containers.putIfAbsent(name, container);
+
+        return existing != null ? existing : container;
     }
 
-    public static synchronized Container getInstance(boolean autoInstance) {
-        if (instance == null) {
-            instance = new Container(autoInstance);
+    private static Container checkAutoInstance(String description, Container container, boolean autoInstance) {
+        if (container.isAutoInstance() != autoInstance) {
+            throw new IllegalStateException(String.format("%s already exists with autoInstance set to %s", description, container.isAutoInstance()));
         }
 
-        return instance;
+        return container;
     }
 }
@@ -0,0 +1,27 @@
+package mpstyle.jcontainer;
+
+/**
+ * Thrown when the container can't provide an object of a key: there isn't a definition for it and the container can't
+ * instantiate it, because auto-instance is disabled, because the key is an interface, an abstract class or a class
+ * without an accessible constructor, or because the dependencies of the class can't be resolved.<br />
+ * The exception doesn't fill its stack trace: it is cheap to throw, and the container throws the same exception again
+ * for a key which can never be built, until a definition is registered for it, and for a key whose dependencies can't
+ * be resolved, until the next registration.
+ */
+public class UnresolvableTypeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Class<?> key;
+
+    public UnresolvableTypeException(Class<?> key, String message, Throwable cause) {
+        super(message, cause, false, false);
+        this.key = key;
+    }
+
+    /**
+     * @return The key which can't be resolved
+     */
+    public Class<?> getKey() {
+        return key;
+    }
+}
@@ -1,35 +1,93 @@
 package mpstyle.jcontainer;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.InputStream;
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
 
 /**
- * Utility class to load a container from a YAML file which collects definition.
+ * Utility class to load a container from a YAML file which collects definition.<br />
+ * The file is a mapping from the key class to the implementation class. It is read as a stream of events, without
+ * building the document in memory.
  */
 public class YamlContainer {
   public static Container from(String filename) {
     return from(new File(filename));
   }
 
+  /**
+   * @throws ContainerLoadException if the file can't be read, or with every invalid entry
+   */
   public static Container from(File file) {
-    try {
-      InputStream input = new FileInputStream(file);
-      Yaml yaml = new Yaml();
-      Map<String, String> map = (Map<String, String>) yaml.load(input);
-      Container c = new Container();
-
-      for (Map.Entry<String, String> entry : map.entrySet()) {
-        Class key = Class.forName(entry.getKey());
-        Class clazz = Class.forName(entry.getValue());
-        c.addDefinition(key, clazz);
-      }
+    return read(file).load();
+  }
+
+  /**
+   * @return The entries of the file, whose classes are not loaded yet
+   * @throws ContainerLoadException if the file can't be read
+   */
+  static DefinitionLoader read(File file) {
+    DefinitionLoader loader = new DefinitionLoader(file.getPath());
+
+    try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      int depth = 0;
+      // The nodes of the root mapping alternate a key and a value
+      boolean isKey = true;
+      String key = null;
+
+      for (Event event : new Yaml().parse(reader)) {
+        if (!(event instanceof NodeEvent)) {
+          if (event instanceof CollectionEndEvent) {
+            depth--;
+          }
+
+          continue;
+        }
+
+        if (depth == 0 && !(event instanceof MappingStartEvent)) {
+          loader.error(position(event), "expected a mapping of class names");
+        } else if (depth == 1) {
+          String name = event instanceof ScalarEvent ? ((ScalarEvent) event).getValue() : null;
 
-      return c;
-    } catch (Exception e) {
-      return null;
+          if (isKey) {
+            key = name;
+
+            if (name == null) {
+              loader.error(position(event), "expected a class name as key");
+            }
+          } else if (key != null) {
+            if (name != null) {
+              loader.add(key, name, position(event));
+            } else {
+              loader.error(position(event), "expected the class name of " + key);
+            }
+          }
+
+          isKey = !isKey;
+        }
+
+        if (event instanceof CollectionStartEvent) {
+          depth++;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      throw new ContainerLoadException(file.getPath(), e);
     }
+
+    return loader;
+  }
+
+  private static String position(Event event) {
+    return "line " + (event.getStartMark().getLine() + 1);
   }
 }
@@ -0,0 +1,15 @@
+package mpstyle.jcontainer.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method without parameters which releases the resources of a singleton: the container calls it on
+ * shutdown, before {@link AutoCloseable#close()} if the singleton implements it.
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Dispose {
+}
@@ -0,0 +1,15 @@
+package mpstyle.jcontainer.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field with {@link Inject} whose type is an interface: the container sets a proxy which resolves the real
+ * object on the first method call.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Lazy {
+}
@@ -0,0 +1,254 @@
+package mpstyle.jcontainer.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import mpstyle.jcontainer.ResolutionListener;
+
+/**
+ * A {@link ResolutionListener} which counts the resolutions of each key and measures the construction times.<br />
+ * The counters are {@link LongAdder}s and the construction times are collected in a histogram with a bucket for each
+ * power of two of nanoseconds, so recording an event doesn't lock and doesn't allocate once the key is known.
+ *
+ * <pre>
+ * ResolutionMetrics metrics = new ResolutionMetrics();
+ * container.setResolutionListener(metrics);
+ * metrics.register("main"); // optional, exposes the totals over JMX
+ * </pre>
+ */
+public class ResolutionMetrics implements ResolutionListener, ResolutionMetricsMXBean {
+    private static final int BUCKETS = 64;
+
+    private final ConcurrentHashMap<Class<?>, KeyMetrics> keys = new ConcurrentHashMap<Class<?>, KeyMetrics>();
+    private final LongAdder rejectedConstructors = new LongAdder();
+
+    public void singletonHit(Class<?> key) {
+        metrics(key).hits.increment();
+    }
+
+    public void constructionFinished(Class<?> key, boolean singleton, long elapsedNanos, Throwable failure) {
+        KeyMetrics metrics = metrics(key);
+        metrics.constructions.increment();
+        metrics.nanos.add(elapsedNanos);
+        metrics.histogram.incrementAndGet(bucket(elapsedNanos));
+
+        if (singleton) {
+            metrics.misses.increment();
+        }
+
+        if (failure != null) {
+            metrics.failures.increment();
+        }
+    }
+
+    public void constructorRejected(Class<?> type, Constructor<?> constructor, Throwable cause) {
+        rejectedConstructors.increment();
+    }
+
+    /**
+     * @return The number of singleton hits and constructions of the <i>key</i>
+     */
+    public long getResolveCount(Class<?> key) {
+        KeyMetrics metrics = keys.get(key);
+        return metrics == null ? 0 : metrics.hits.sum() + metrics.constructions.sum();
+    }
+
+    public long getSingletonHitCount(Class<?> key) {
+        KeyMetrics metrics = keys.get(key);
+        return metrics == null ? 0 : metrics.hits.sum();
+    }
+
+    public long getSingletonMissCount(Class<?> key) {
+        KeyMetrics metrics = keys.get(key);
+        return metrics == null ? 0 : metrics.misses.sum();
+    }
+
+    public long getConstructionCount(Class<?> key) {
+        KeyMetrics metrics = keys.get(key);
+        return metrics == null ? 0 : metrics.constructions.sum();
+    }
+
+    public long getFailureCount(Class<?> key) {
+        KeyMetrics metrics = keys.get(key);
+        return metrics == null ? 0 : metrics.failures.sum();
+    }
+
+    /**
+     * @return The construction times of the <i>key</i>: the element <i>i</i> is the number of constructions which took
+     * at least 2<sup>i</sup> and less than 2<sup>i+1</sup> nanoseconds.
+     */
+    public long[] getConstructionTimeHistogram(Class<?> key) {
+        long[] result = new long[BUCKETS];
+        KeyMetrics metrics = keys.get(key);
+
+        if (metrics != null) {
+            for (int i = 0; i < BUCKETS; i++) {
+                result[i] = metrics.histogram.get(i);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return An upper bound of the construction time of the <i>key</i> at the <i>percentile</i>, in nanoseconds; 0 if
+     * the key has never been built
+     */
+    public long getConstructionTimePercentile(Class<?> key, double percentile) {
+        long[] histogram = getConstructionTimeHistogram(key);
+        long total = 0;
+
+        for (long count : histogram) {
+            total += count;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS && total > 0; i++) {
+            seen += histogram[i];
+
+            if (seen >= threshold && seen > 0) {
+                return i >= 62 ? Long.MAX_VALUE : 1L << (i + 1);
+            }
+        }
+
+        return 0;
+    }
+
+    public long getResolveCount() {
+        long result = 0;
+
+        for (KeyMetrics metrics : keys.values()) {
+            result += metrics.hits.sum() + metrics.constructions.sum();
+        }
+
+        return result;
+    }
+
+    public long getSingletonHitCount() {
+        long result = 0;
+
+        for (KeyMetrics metrics : keys.values()) {
+            result += metrics.hits.sum();
+        }
+
+        return result;
+    }
+
+    public long getSingletonMissCount() {
+        long result = 0;
+
+        for (KeyMetrics metrics : keys.values()) {
+            result += metrics.misses.sum();
+        }
+
+        return result;
+    }
+
+    public long getConstructionCount() {
+        long result = 0;
+
+        for (KeyMetrics metrics : keys.values()) {
+            result += metrics.constructions.sum();
+        }
+
+        return result;
+    }
+
+    public long getFailureCount() {
+        long result = 0;
+
+        for (KeyMetrics metrics : keys.values()) {
+            result += metrics.failures.sum();
+        }
+
+        return result;
+    }
+
+    public long getRejectedConstructorCount() {
+        return rejectedConstructors.sum();
+    }
+
+    public Map<String, Long> getResolveCounts() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+
+        for (Map.Entry<Class<?>, KeyMetrics> entry : keys.entrySet()) {
+            result.put(entry.getKey().getName(), entry.getValue().hits.sum() + entry.getValue().constructions.sum());
+        }
+
+        return result;
+    }
+
+    public Map<String, Long> getMeanConstructionNanos() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+
+        for (Map.Entry<Class<?>, KeyMetrics> entry : keys.entrySet()) {
+            long constructions = entry.getValue().constructions.sum();
+
+            if (constructions > 0) {
+                result.put(entry.getKey().getName(), entry.getValue().nanos.sum() / constructions);
+            }
+        }
+
+        return result;
+    }
+
+    public void reset() {
+        keys.clear();
+        rejectedConstructors.reset();
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server.
+     *
+     * @param name The name of the container
+     * @return The name of the MBean: <i>mpstyle.jcontainer:type=ResolutionMetrics,name=...</i>
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("mpstyle.jcontainer:type=ResolutionMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+        return objectName;
+    }
+
+    public void unregister(ObjectName objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+    }
+
+    private KeyMetrics metrics(Class<?> key) {
+        KeyMetrics metrics = keys.get(key);
+
+        if (metrics == null) {
+            KeyMetrics created = new KeyMetrics();
+            metrics = keys.putIfAbsent(key, created);
+
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+
+        return metrics;
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    private static final class KeyMetrics {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder constructions = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    }
+}
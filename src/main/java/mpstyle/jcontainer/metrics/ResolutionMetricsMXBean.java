@@ -0,0 +1,32 @@
+package mpstyle.jcontainer.metrics;
+
+import java.util.Map;
+
+/**
+ * The JMX view of the {@link ResolutionMetrics}, see {@link ResolutionMetrics#register(String)}.
+ */
+public interface ResolutionMetricsMXBean {
+    long getResolveCount();
+
+    long getSingletonHitCount();
+
+    long getSingletonMissCount();
+
+    long getConstructionCount();
+
+    long getFailureCount();
+
+    long getRejectedConstructorCount();
+
+    /**
+     * @return The number of resolutions by key name
+     */
+    Map<String, Long> getResolveCounts();
+
+    /**
+     * @return The mean construction time in nanoseconds by key name
+     */
+    Map<String, Long> getMeanConstructionNanos();
+
+    void reset();
+}
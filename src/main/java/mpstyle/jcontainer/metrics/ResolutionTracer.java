@@ -0,0 +1,442 @@
+package mpstyle.jcontainer.metrics;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import mpstyle.jcontainer.ResolutionListener;
+
+/**
+ * A {@link ResolutionListener} which records the tree of the resolutions, for example during the startup: each
+ * construction with its chosen and rejected constructors, its inclusive and exclusive time, and the singleton hits of
+ * its dependencies.<br />
+ * The tree can be exported as JSON or as collapsed stacks (the input of flame graph tools), and
+ * {@link #getCriticalPath()} follows the dependencies to find the chain of constructions which costs the most.
+ *
+ * <pre>
+ * ResolutionTracer tracer = new ResolutionTracer();
+ * container.setResolutionListener(tracer);
+ * container.warmUp();
+ * container.setResolutionListener(null);
+ *
+ * System.out.println(tracer.getCriticalPathSummary());
+ * </pre>
+ *
+ * Every thread records its own branch of the tree: read the tree when the traced resolutions are over.
+ */
+public class ResolutionTracer implements ResolutionListener {
+    private final ConcurrentLinkedQueue<Node> roots = new ConcurrentLinkedQueue<Node>();
+    private final ThreadLocal<Deque<Node>> stacks = new ThreadLocal<Deque<Node>>() {
+        @Override
+        protected Deque<Node> initialValue() {
+            return new ArrayDeque<Node>();
+        }
+    };
+
+    /**
+     * Only the hits during a construction are recorded, as dependencies of the object being built.
+     */
+    public void singletonHit(Class<?> key) {
+        Node parent = stacks.get().peek();
+
+        if (parent != null) {
+            parent.children.add(new Node(key, true));
+        }
+    }
+
+    public void constructionStarted(Class<?> key) {
+        Deque<Node> stack = stacks.get();
+        Node node = new Node(key, false);
+
+        if (stack.isEmpty()) {
+            roots.add(node);
+        } else {
+            stack.peek().children.add(node);
+        }
+
+        stack.push(node);
+    }
+
+    public void constructionFinished(Class<?> key, boolean singleton, long elapsedNanos, Throwable failure) {
+        // The tracer could have been set while the construction was running
+        Node node = stacks.get().poll();
+
+        if (node != null) {
+            node.singleton = singleton;
+            node.inclusiveNanos = elapsedNanos;
+            node.failure = failure == null ? null : failure.toString();
+        }
+    }
+
+    public void constructorChosen(Class<?> type, Constructor<?> constructor) {
+        Node node = stacks.get().peek();
+
+        if (node != null) {
+            node.constructor = constructor.toString();
+        }
+    }
+
+    public void constructorRejected(Class<?> type, Constructor<?> constructor, Throwable cause) {
+        Node node = stacks.get().peek();
+
+        if (node != null) {
+            node.rejectedConstructors.add(constructor + ": " + cause);
+        }
+    }
+
+    /**
+     * @return The outermost constructions, in the order they started
+     */
+    public List<Node> getRoots() {
+        return Collections.unmodifiableList(new ArrayList<Node>(roots));
+    }
+
+    public void clear() {
+        roots.clear();
+    }
+
+    /**
+     * Returns the chain of constructions which sets the latency of the traced resolutions. The chain follows the
+     * dependencies, not the threads: a singleton hit during a construction leads to the construction of that singleton,
+     * even if it has been built by another thread (for example by {@link mpstyle.jcontainer.Container#warmUp()}).
+     * The cost of a construction is its exclusive time plus the cost of its most expensive dependency.
+     *
+     * @return The constructions of the critical path, from the last one to complete to its deepest dependency; empty
+     * if nothing has been traced
+     */
+    public List<Node> getCriticalPath() {
+        return getCriticalPath(new IdentityHashMap<Node, Long>());
+    }
+
+    /**
+     * @return A text report of the constructions and of the critical path, one construction per line
+     */
+    public String getCriticalPathSummary() {
+        Map<Node, Long> costs = new IdentityHashMap<Node, Long>();
+        List<Node> path = getCriticalPath(costs);
+        long total = 0;
+        int count = 0;
+
+        for (Node node : constructions()) {
+            total += node.getExclusiveNanos();
+            count++;
+        }
+
+        StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "Constructions: %d, %s in total%n", count, millis(total)));
+
+        if (!path.isEmpty()) {
+            result.append(String.format(Locale.ROOT, "Critical path: %s%n", millis(costs.get(path.get(0)))));
+        }
+
+        for (int i = 0; i < path.size(); i++) {
+            Node node = path.get(i);
+
+            for (int j = 0; j <= i; j++) {
+                result.append("  ");
+            }
+
+            result.append(String.format(Locale.ROOT, "%s %s (self %s)%n", node.key.getName(), millis(costs.get(node)), millis(node.getExclusiveNanos())));
+        }
+
+        return result.toString();
+    }
+
+    private List<Node> getCriticalPath(Map<Node, Long> costs) {
+        List<Node> all = constructions();
+        // A hit leads to the first construction of its key
+        Map<Class<?>, Node> byKey = new HashMap<Class<?>, Node>();
+
+        for (Node node : all) {
+            if (!byKey.containsKey(node.key)) {
+                byKey.put(node.key, node);
+            }
+        }
+
+        Set<Node> visiting = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        Node node = null;
+        long slowest = -1;
+
+        for (Node candidate : all) {
+            long cost = cost(candidate, byKey, costs, visiting);
+
+            if (cost > slowest) {
+                node = candidate;
+                slowest = cost;
+            }
+        }
+
+        List<Node> path = new ArrayList<Node>();
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+
+        while (node != null && visited.add(node)) {
+            path.add(node);
+            Node next = null;
+            slowest = -1;
+
+            for (Node child : node.children) {
+                Node target = child.hit ? byKey.get(child.key) : child;
+
+                if (target != null) {
+                    long cost = cost(target, byKey, costs, visiting);
+
+                    if (cost > slowest) {
+                        next = target;
+                        slowest = cost;
+                    }
+                }
+            }
+
+            node = next;
+        }
+
+        return path;
+    }
+
+    private static long cost(Node node, Map<Class<?>, Node> byKey, Map<Node, Long> costs, Set<Node> visiting) {
+        Long known = costs.get(node);
+
+        if (known != null) {
+            return known;
+        }
+
+        // A cycle of hits can't happen in a real resolution: the node is counted once
+        if (!visiting.add(node)) {
+            return node.getExclusiveNanos();
+        }
+
+        long dependencies = 0;
+
+        for (Node child : node.children) {
+            Node target = child.hit ? byKey.get(child.key) : child;
+
+            if (target != null) {
+                dependencies = Math.max(dependencies, cost(target, byKey, costs, visiting));
+            }
+        }
+
+        visiting.remove(node);
+        long result = node.getExclusiveNanos() + dependencies;
+        costs.put(node, result);
+
+        return result;
+    }
+
+    /**
+     * @return Every construction of the tree, the parents before their children
+     */
+    private List<Node> constructions() {
+        List<Node> result = new ArrayList<Node>();
+        Deque<Node> pending = new ArrayDeque<Node>(roots);
+
+        while (!pending.isEmpty()) {
+            Node node = pending.poll();
+
+            if (!node.hit) {
+                result.add(node);
+                pending.addAll(node.children);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The tree as a JSON array of the roots
+     */
+    public String toJson() {
+        StringBuilder result = new StringBuilder();
+        appendJson(result, roots);
+
+        return result.toString();
+    }
+
+    /**
+     * @return One line for each construction, with the keys from the root separated by <i>;</i> and the exclusive time
+     * in nanoseconds: the collapsed stacks format of the flame graph tools
+     */
+    public String toCollapsedStacks() {
+        StringBuilder result = new StringBuilder();
+
+        for (Node root : roots) {
+            appendStacks(result, root, "");
+        }
+
+        return result.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+    }
+
+    private static void appendStacks(StringBuilder result, Node node, String prefix) {
+        if (node.hit) {
+            return;
+        }
+
+        String stack = prefix.isEmpty() ? node.key.getName() : prefix + ";" + node.key.getName();
+        long exclusive = node.getExclusiveNanos();
+
+        if (exclusive > 0) {
+            result.append(stack).append(' ').append(exclusive).append('\n');
+        }
+
+        for (Node child : node.children) {
+            appendStacks(result, child, stack);
+        }
+    }
+
+    private static void appendJson(StringBuilder result, Iterable<Node> nodes) {
+        result.append('[');
+        boolean first = true;
+
+        for (Node node : nodes) {
+            if (!first) {
+                result.append(',');
+            }
+
+            first = false;
+            result.append("{\"key\":");
+            appendString(result, node.key.getName());
+
+            if (node.hit) {
+                result.append(",\"hit\":true}");
+                continue;
+            }
+
+            result.append(",\"singleton\":").append(node.singleton);
+            result.append(",\"constructor\":");
+            appendString(result, node.constructor);
+            result.append(",\"inclusiveNanos\":").append(node.inclusiveNanos);
+            result.append(",\"exclusiveNanos\":").append(node.getExclusiveNanos());
+            result.append(",\"failure\":");
+            appendString(result, node.failure);
+            result.append(",\"rejectedConstructors\":[");
+
+            for (int i = 0; i < node.rejectedConstructors.size(); i++) {
+                if (i > 0) {
+                    result.append(',');
+                }
+
+                appendString(result, node.rejectedConstructors.get(i));
+            }
+
+            result.append("],\"children\":");
+            appendJson(result, node.children);
+            result.append('}');
+        }
+
+        result.append(']');
+    }
+
+    private static void appendString(StringBuilder result, String value) {
+        if (value == null) {
+            result.append("null");
+            return;
+        }
+
+        result.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+
+        result.append('"');
+    }
+
+    /**
+     * A construction, or a singleton hit during a construction.
+     */
+    public static final class Node {
+        private final Class<?> key;
+        private final boolean hit;
+        private final List<Node> children = new ArrayList<Node>();
+        private final List<String> rejectedConstructors = new ArrayList<String>();
+        private boolean singleton;
+        private String constructor;
+        private long inclusiveNanos;
+        private String failure;
+
+        private Node(Class<?> key, boolean hit) {
+            this.key = key;
+            this.hit = hit;
+            this.singleton = hit;
+        }
+
+        public Class<?> getKey() {
+            return key;
+        }
+
+        /**
+         * @return true if the node is an existing singleton, so it has no time and no children
+         */
+        public boolean isHit() {
+            return hit;
+        }
+
+        public boolean isSingleton() {
+            return singleton;
+        }
+
+        /**
+         * @return The constructor which built the object, or null if it has been built by a factory or by a closure
+         */
+        public String getConstructor() {
+            return constructor;
+        }
+
+        /**
+         * @return The constructors which failed before the chosen one, with their errors
+         */
+        public List<String> getRejectedConstructors() {
+            return Collections.unmodifiableList(rejectedConstructors);
+        }
+
+        /**
+         * @return The construction time, including the dependencies
+         */
+        public long getInclusiveNanos() {
+            return inclusiveNanos;
+        }
+
+        /**
+         * @return The construction time, without the constructions of the dependencies
+         */
+        public long getExclusiveNanos() {
+            long result = inclusiveNanos;
+
+            for (Node child : children) {
+                result -= child.inclusiveNanos;
+            }
+
+            return Math.max(result, 0);
+        }
+
+        /**
+         * @return The error of the construction, or null if it succeeded
+         */
+        public String getFailure() {
+            return failure;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package mpstyle.jcontainer.scope;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import mpstyle.jcontainer.Closure;
+
+/**
+ * The definitions of the scope are singletons which the garbage collector can reclaim: the instance is held by a soft
+ * (or weak) reference and it is built again by the next {@link mpstyle.jcontainer.Container#get(Class)} after it has
+ * been collected. It suits big objects which can be rebuilt from their source, like lookup tables and caches.<br />
+ * With a maximum size, the scope keeps at most that many instances and evicts the least recently used one. A hit
+ * updates the recency only if the order isn't being updated by another thread, so the hits never wait.
+ */
+public class ReclaimableScope implements Scope {
+    public enum Strength {
+        /**
+         * The instances are collected when the JVM needs memory.
+         */
+        SOFT,
+        /**
+         * The instances are collected at the first garbage collection after they are no longer used.
+         */
+        WEAK
+    }
+
+    private final Strength strength;
+    private final int maxSize;
+    // The slots to release on clear(), weakly referenced: a slot lives as long as the definition which uses it
+    private final ConcurrentLinkedQueue<WeakReference<Slot<?>>> slots = new ConcurrentLinkedQueue<WeakReference<Slot<?>>>();
+    private final ReentrantLock recentlyUsedLock = new ReentrantLock();
+    private final LinkedHashMap<Slot<?>, Boolean> recentlyUsed = new LinkedHashMap<Slot<?>, Boolean>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder collections = new LongAdder();
+
+    /**
+     * A scope of soft references without a maximum size.
+     */
+    public ReclaimableScope() {
+        this(Strength.SOFT, 0);
+    }
+
+    /**
+     * @param strength The reference which holds the instances
+     * @param maxSize  The maximum number of instances kept by the scope, 0 for no maximum
+     */
+    public ReclaimableScope(Strength strength, int maxSize) {
+        if (strength == null) {
+            throw new IllegalArgumentException("The strength must not be null");
+        }
+
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The maximum size must not be negative: " + maxSize);
+        }
+
+        this.strength = strength;
+        this.maxSize = maxSize;
+    }
+
+    public <T> Closure<T> scope(Class<T> key, Closure<T> unscoped) {
+        Slot<T> slot = new Slot<T>(unscoped);
+        removeDeadSlots();
+        slots.add(new WeakReference<Slot<?>>(slot));
+
+        return slot;
+    }
+
+    /**
+     * Removes the slots of the definitions which have been replaced or discarded and collected.
+     */
+    private void removeDeadSlots() {
+        Iterator<WeakReference<Slot<?>>> iterator = slots.iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().get() == null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Releases every instance of the scope: they are built again on the next request.
+     */
+    public void clear() {
+        recentlyUsedLock.lock();
+
+        try {
+            for (WeakReference<Slot<?>> alive : slots) {
+                Slot<?> slot = alive.get();
+
+                if (slot != null) {
+                    slot.reference = null;
+                }
+            }
+
+            removeDeadSlots();
+            recentlyUsed.clear();
+        } finally {
+            recentlyUsedLock.unlock();
+        }
+    }
+
+    /**
+     * @return The requests served by a live instance
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The requests which built an instance
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The instances released because the scope was full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The instances found reclaimed by the garbage collector
+     */
+    public long getCollectionCount() {
+        return collections.sum();
+    }
+
+    /**
+     * Moves the <i>slot</i> to the most recently used position and evicts the eldest slots over the maximum size.
+     *
+     * @param built true if the slot has just built its instance: it waits for the order, otherwise the update is
+     *              skipped if another thread is updating it
+     */
+    private void used(Slot<?> slot, boolean built) {
+        if (maxSize == 0) {
+            return;
+        }
+
+        if (built) {
+            recentlyUsedLock.lock();
+        } else if (!recentlyUsedLock.tryLock()) {
+            return;
+        }
+
+        try {
+            recentlyUsed.put(slot, Boolean.TRUE);
+
+            Iterator<Slot<?>> eldest = recentlyUsed.keySet().iterator();
+
+            while (recentlyUsed.size() > maxSize) {
+                Slot<?> evicted = eldest.next();
+                eldest.remove();
+                Reference<?> reference = evicted.reference;
+                evicted.reference = null;
+
+                if (reference != null && reference.get() != null) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            recentlyUsedLock.unlock();
+        }
+    }
+
+    private final class Slot<T> implements Closure<T> {
+        // A lock instead of a monitor: the instance is built while holding it, and a virtual thread doesn't pin its
+        // carrier while waiting for it
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Closure<T> unscoped;
+        private volatile Reference<T> reference;
+
+        private Slot(Closure<T> unscoped) {
+            this.unscoped = unscoped;
+        }
+
+        public T call() {
+            T instance = get();
+
+            if (instance != null) {
+                hits.increment();
+                used(this, false);
+
+                return instance;
+            }
+
+            return build();
+        }
+
+        private T build() {
+            boolean built = false;
+            T instance;
+            lock.lock();
+
+            try {
+                Reference<T> current = reference;
+                instance = current == null ? null : current.get();
+
+                if (instance == null) {
+                    // An evicted instance has no reference, so a cleared one has been reclaimed by the garbage collector
+                    if (current != null) {
+                        collections.increment();
+                    }
+
+                    misses.increment();
+                    instance = unscoped.call();
+                    reference = strength == Strength.WEAK ? new WeakReference<T>(instance) : new SoftReference<T>(instance);
+                    built = true;
+                } else {
+                    hits.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            used(this, built);
+
+            return instance;
+        }
+
+        private T get() {
+            Reference<T> current = reference;
+
+            return current == null ? null : current.get();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package mpstyle.jcontainer.scope;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mpstyle.jcontainer.Closure;
+
+/**
+ * Each request has its own instance of the definitions of the scope: a request is opened by {@link #open()} and lasts
+ * until it is closed.<br />
+ * Every definition of the scope has a slot in the array of the request, so the lookup is an array read, and closing the
+ * request drops all its instances at once. The current thread keeps only a reference to its open request, which is
+ * removed on close: a virtual thread per request doesn't leave anything behind.
+ */
+public class RequestScope implements Scope {
+    private final ThreadLocal<Request> current = new ThreadLocal<Request>();
+    private final AtomicInteger slots = new AtomicInteger();
+
+    public <T> Closure<T> scope(final Class<T> key, final Closure<T> unscoped) {
+        final int slot = slots.getAndIncrement();
+
+        return new Closure<T>() {
+            @SuppressWarnings("unchecked")
+            public T call() {
+                Request request = current.get();
+
+                if (request == null) {
+                    throw new IllegalStateException("There is not an open request for class " + key.getName());
+                }
+
+                return (T) request.get(slot, unscoped);
+            }
+        };
+    }
+
+    /**
+     * Opens a request in the current thread.
+     *
+     * @return The request, to close at the end of the work
+     * @throws IllegalStateException if the current thread has already an open request
+     */
+    public Request open() {
+        if (current.get() != null) {
+            throw new IllegalStateException("The current thread has already an open request");
+        }
+
+        Request request = new Request();
+        current.set(request);
+
+        return request;
+    }
+
+    /**
+     * @return true if the current thread has an open request
+     */
+    public boolean isOpen() {
+        return current.get() != null;
+    }
+
+    /**
+     * The instances of a request. It must be used by a single thread, the one which opened it.
+     */
+    public final class Request implements AutoCloseable {
+        private Object[] instances = new Object[Math.max(slots.get(), 8)];
+
+        private Request() {
+        }
+
+        private Object get(int slot, Closure<?> unscoped) {
+            if (instances == null) {
+                throw new IllegalStateException("The request is closed");
+            }
+
+            if (slot >= instances.length) {
+                instances = Arrays.copyOf(instances, Math.max(slot + 1, instances.length * 2));
+            }
+
+            Object instance = instances[slot];
+
+            if (instance == null) {
+                instance = unscoped.call();
+                instances[slot] = instance;
+            }
+
+            return instance;
+        }
+
+        /**
+         * Releases all the instances of the request and detaches it from the current thread.
+         */
+        public void close() {
+            instances = null;
+
+            if (current.get() == this) {
+                current.remove();
+            }
+        }
+    }
+}
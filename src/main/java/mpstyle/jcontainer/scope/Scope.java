@@ -0,0 +1,20 @@
+package mpstyle.jcontainer.scope;
+
+import mpstyle.jcontainer.Closure;
+
+/**
+ * A lifecycle of the objects of a definition, between the singleton and the new instance on every
+ * {@link mpstyle.jcontainer.Container#get(Class)}.
+ */
+public interface Scope {
+    /**
+     * Called once, when a definition is registered with this scope.
+     *
+     * @param key      The key of the definition
+     * @param unscoped Builds a new object each time it is called
+     * @param <T>      The type of the object
+     * @return The {@link Closure} called by the container on each request of the key, which returns the object of the
+     * current scope.
+     */
+    <T> Closure<T> scope(Class<T> key, Closure<T> unscoped);
+}
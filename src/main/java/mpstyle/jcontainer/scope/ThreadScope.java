@@ -0,0 +1,27 @@
+package mpstyle.jcontainer.scope;
+
+import mpstyle.jcontainer.Closure;
+
+/**
+ * Each thread has its own instance of the definitions of the scope.<br />
+ * Every definition has its own {@link ThreadLocal}, so the lookup is a read of the current thread map. The instances
+ * are released when their thread ends.
+ */
+public class ThreadScope implements Scope {
+    public <T> Closure<T> scope(Class<T> key, final Closure<T> unscoped) {
+        final ThreadLocal<T> instances = new ThreadLocal<T>();
+
+        return new Closure<T>() {
+            public T call() {
+                T instance = instances.get();
+
+                if (instance == null) {
+                    instance = unscoped.call();
+                    instances.set(instance);
+                }
+
+                return instance;
+            }
+        };
+    }
+}
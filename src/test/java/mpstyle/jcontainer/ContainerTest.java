@@ -3,8 +3,29 @@ package mpstyle.jcontainer;
 import mpstyle.jcontainer.dummy.*;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class ContainerTest {
     @Test
@@ -63,4 +84,516 @@ public class ContainerTest {
         assertTrue(serviceG != null);
         assertTrue(serviceG.servicec != null);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testInjectConstructor() {
+        Container c = new Container();
+        ServiceH serviceH = c.get(ServiceH.class);
+        assertSame(c.get(ServiceC.class), serviceH.servicec);
+    }
+
+    @Test
+    public void prototypeDefinition() {
+        Container c = new Container();
+        c.addDefinition(ServiceE.class, false);
+        c.addDefinition(ServiceG.class, false);
+
+        ServiceE first = c.get(ServiceE.class);
+        ServiceE second = c.get(ServiceE.class);
+        assertNotSame(first, second);
+        assertNotNull(second.getServiceF());
+
+        ServiceG serviceG = c.get(ServiceG.class);
+        assertNotSame(serviceG, c.get(ServiceG.class));
+        assertNotNull(c.get(ServiceG.class).servicec);
+    }
+
+    @Test
+    public void replaceDefinition() {
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class, false);
+        assertTrue(c.get(ServiceA.class) instanceof ServiceB);
+
+        c.addClosure(ServiceA.class, DummyClosure.class, false);
+        assertTrue(c.get(ServiceA.class) instanceof ServiceB);
+    }
+
+    @Test
+    public void compiledFactories() {
+        Container c = new Container().setCompiledFactories(true);
+        c.addDefinition(ServiceA.class, ServiceB.class, false);
+        c.addDefinition(ServiceE.class, false);
+        c.addDefinition(ServiceG.class, false);
+
+        for (int i = 0; i < 3; i++) {
+            ServiceA serviceA = c.get(ServiceA.class);
+            assertTrue(serviceA instanceof ServiceB);
+            assertNotNull(((ServiceB) serviceA).getServiceC());
+            assertEquals("Hello world!", c.get(ServiceE.class).getServiceF().getTest());
+            assertNotNull(c.get(ServiceG.class).servicec);
+        }
+    }
+
+    @Test
+    public void compiledFactories_failure() {
+        Container c = new Container().setCompiledFactories(true);
+        c.addDefinition(ServiceP.class, false);
+        ServiceP.ATTEMPTS.set(0);
+        c.get(ServiceP.class);
+        c.get(ServiceP.class);
+
+        try {
+            ServiceP.failing = true;
+            assertThrows(RuntimeException.class, () -> c.get(ServiceP.class));
+        } finally {
+            ServiceP.failing = false;
+        }
+
+        // The failure of the compiled constructor is not retried by reflection
+        assertEquals(3, ServiceP.ATTEMPTS.get());
+    }
+
+    @Test
+    public void localClasses() {
+        class First {
+        }
+        class Second {
+        }
+
+        Container c = new Container(false);
+        c.addInstance(First.class, new First());
+
+        assertTrue(c.existsKey(First.class));
+        assertFalse(c.existsKey(Second.class));
+        assertThrows(RuntimeException.class, () -> c.get(Second.class));
+    }
+
+    @Test
+    public void concurrentSingleton() throws Exception {
+        final AtomicInteger builds = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        Container c = new Container();
+        c.addClosure(ServiceC.class, () -> {
+            builds.incrementAndGet();
+
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return new ServiceC();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ServiceC>> results = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return c.get(ServiceC.class);
+            }));
+        }
+
+        start.countDown();
+
+        ServiceC first = results.get(0).get();
+        for (Future<ServiceC> result : results) {
+            assertSame(first, result.get());
+        }
+
+        executor.shutdown();
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void freeze() {
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceE.class, false);
+
+        Container frozen = c.freeze();
+        assertTrue(c.isFrozen());
+        assertTrue(frozen.isFrozen());
+
+        assertSame(frozen.get(ServiceA.class), frozen.get(ServiceA.class));
+        assertSame(c.get(ServiceA.class), frozen.get(ServiceA.class));
+        assertTrue(frozen.existsKey(ServiceC.class));
+        assertNotSame(frozen.get(ServiceE.class), frozen.get(ServiceE.class));
+        assertNotNull(frozen.get(ServiceE.class).getServiceF());
+
+        assertThrows(RuntimeException.class, () -> frozen.get(ServiceD.class));
+        assertThrows(IllegalStateException.class, () -> frozen.addDefinition(ServiceD.class));
+        assertThrows(IllegalStateException.class, () -> c.addInstance(new ServiceD()));
+        assertThrows(IllegalStateException.class, c::freeze);
+    }
+
+    @Test
+    public void warmUp() {
+        final AtomicInteger builds = new AtomicInteger();
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceE.class);
+        c.addClosure(ServiceD.class, () -> {
+            builds.incrementAndGet();
+            throw new IllegalStateException("Broken");
+        });
+
+        Map<Class<?>, Throwable> failures = c.warmUp();
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(ServiceD.class) instanceof IllegalStateException);
+        assertEquals(1, builds.get());
+        assertTrue(c.existsKey(ServiceC.class));
+        assertTrue(c.existsKey(ServiceF.class));
+        assertSame(c.get(ServiceF.class), c.get(ServiceE.class).getServiceF());
+    }
+
+    @Test
+    public void validate() {
+        Container c = new Container(false);
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceI.class);
+        c.addDefinition(ServiceJ.class);
+
+        List<String> problems = c.validate();
+
+        assertEquals(2, problems.size());
+        assertTrue(problems.contains("There is not a definition for class mpstyle.jcontainer.dummy.ServiceC, required by mpstyle.jcontainer.dummy.ServiceA"));
+        assertTrue(problems.contains("Dependency cycle: mpstyle.jcontainer.dummy.ServiceI -> mpstyle.jcontainer.dummy.ServiceJ -> mpstyle.jcontainer.dummy.ServiceI")
+                || problems.contains("Dependency cycle: mpstyle.jcontainer.dummy.ServiceJ -> mpstyle.jcontainer.dummy.ServiceI -> mpstyle.jcontainer.dummy.ServiceJ"));
+
+        c.addDefinition(ServiceC.class);
+        assertEquals(1, c.validate().size());
+        assertTrue(new Container().validate().isEmpty());
+
+        // The @Inject constructor of ServiceH can't be satisfied, but get() falls back to the other one
+        Container h = new Container(false).addDefinition(ServiceH.class);
+        assertTrue(h.validate().isEmpty());
+        assertNotNull(h.get(ServiceH.class));
+    }
+
+    @Test
+    public void dependencyCycle() {
+        Container c = new Container();
+
+        DependencyCycleException e = assertThrows(DependencyCycleException.class, () -> c.get(ServiceI.class));
+        assertEquals(Arrays.asList(ServiceI.class, ServiceJ.class, ServiceI.class), e.getPath());
+    }
+
+    @Test
+    public void dependencyCycle_threads() throws Exception {
+        // Each thread locks its singleton, then asks for the singleton locked by the other thread
+        CountDownLatch locked = new CountDownLatch(2);
+        Container c = new Container();
+        c.addClosure(ServiceC.class, () -> {
+            await(locked);
+            c.get(ServiceF.class);
+            return new ServiceC();
+        });
+        c.addClosure(ServiceF.class, () -> {
+            await(locked);
+            c.get(ServiceC.class);
+            return new ServiceF();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<?> first = executor.submit(() -> c.get(ServiceC.class));
+            Future<?> second = executor.submit(() -> c.get(ServiceF.class));
+
+            for (Future<?> future : Arrays.asList(first, second)) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof DependencyCycleException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        latch.countDown();
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void lazyDependencies() {
+        final AtomicInteger builds = new AtomicInteger();
+        Container c = new Container().setCompiledFactories(true);
+        c.addClosure(ServiceC.class, () -> {
+            builds.incrementAndGet();
+            return new ServiceC();
+        });
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceK.class, false);
+
+        ServiceK serviceK = c.get(ServiceK.class);
+        c.get(ServiceK.class);
+        assertEquals(0, builds.get());
+        assertTrue(c.validate().isEmpty());
+
+        assertSame(c.get(ServiceC.class), serviceK.getServiceC().call());
+        assertSame(serviceK.getServiceC().call(), serviceK.getServiceC().call());
+        assertEquals("Hello world!", serviceK.getServiceF().call().getTest());
+        assertEquals(1, builds.get());
+
+        assertFalse(serviceK.getServiceA() instanceof ServiceB);
+        assertEquals(c.get(ServiceA.class).toString(), serviceK.getServiceA().toString());
+        assertThrows(IllegalArgumentException.class, () -> c.getLazy(ServiceC.class));
+    }
+
+    @Test
+    public void createChild() {
+        Container parent = new Container();
+        parent.addDefinition(ServiceA.class, ServiceB.class);
+        ServiceA serviceA = parent.get(ServiceA.class);
+
+        Container child = parent.createChild();
+        assertSame(parent, child.getParent());
+        assertTrue(child.existsKey(ServiceA.class));
+        assertSame(serviceA, child.get(ServiceA.class));
+
+        ServiceC serviceC = new ServiceC();
+        child.addInstance(ServiceC.class, serviceC);
+        assertSame(serviceC, child.get(ServiceC.class));
+        assertNotSame(serviceC, parent.get(ServiceC.class));
+        assertSame(parent.get(ServiceC.class), ((ServiceB) child.get(ServiceA.class)).getServiceC());
+
+        ServiceD serviceD = child.get(ServiceD.class);
+        assertFalse(parent.existsKey(ServiceD.class));
+        assertSame(serviceD, child.get(ServiceD.class));
+
+        Container frozen = child.freeze();
+        assertSame(serviceA, frozen.get(ServiceA.class));
+        assertSame(serviceC, frozen.get(ServiceC.class));
+    }
+
+    @Test
+    public void getAsync() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger builds = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Container c = new Container();
+            c.addDefinition(ServiceA.class, ServiceB.class);
+            c.addAsyncClosure(ServiceC.class, new Closure<ServiceC>() {
+                public ServiceC call() {
+                    builds.incrementAndGet();
+
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+
+                    return new ServiceC();
+                }
+            }, executor);
+
+            CompletableFuture<ServiceC> serviceC = c.getAsync(ServiceC.class);
+            assertSame(serviceC, c.getAsync(ServiceC.class));
+
+            // ServiceB waits for its ServiceC without blocking the caller
+            CompletableFuture<ServiceA> serviceA = c.getAsync(ServiceA.class);
+            assertFalse(serviceA.isDone());
+
+            release.countDown();
+
+            assertSame(serviceC.get(5, TimeUnit.SECONDS), ((ServiceB) serviceA.get(5, TimeUnit.SECONDS)).getServiceC());
+            assertSame(serviceC.get(), c.get(ServiceC.class));
+            assertEquals(1, builds.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void getAsync_dependencies() throws Exception {
+        // The singleton of ServiceB waits for its ServiceC without taking the only thread of the executor
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Container c = new Container();
+            c.addAsyncDefinition(ServiceA.class, ServiceB.class, executor);
+            c.addAsyncDefinition(ServiceC.class, ServiceC.class, executor);
+
+            ServiceA serviceA = c.getAsync(ServiceA.class).get(5, TimeUnit.SECONDS);
+            assertSame(c.get(ServiceC.class), ((ServiceB) serviceA).getServiceC());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getAsync_failure() {
+        Container c = new Container(false);
+
+        CompletableFuture<ServiceA> future = c.getAsync(ServiceA.class);
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test
+    public void borrow() throws Exception {
+        Container c = new Container();
+        c.addPooledDefinition(ServiceC.class, ServiceC.class, 1, PoolPolicy.WAIT);
+
+        final Pooled<ServiceC> first = c.borrow(ServiceC.class);
+        ServiceC serviceC = first.get();
+        assertNotSame(serviceC, c.get(ServiceC.class));
+
+        // The only object is borrowed: the second borrower waits for it
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<ServiceC> second = executor.submit(() -> {
+                try (Pooled<ServiceC> pooled = c.borrow(ServiceC.class)) {
+                    return pooled.get();
+                }
+            });
+
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+
+            first.close();
+            assertSame(serviceC, second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThrows(IllegalStateException.class, first::get);
+        assertThrows(IllegalArgumentException.class, () -> c.borrow(ServiceA.class));
+    }
+
+    @Test
+    public void getAll() {
+        Container c = new Container();
+        c.addMultiBinding(ServiceA.class, ServiceB.class);
+        c.addMultiBinding(ServiceA.class, ServiceL.class);
+
+        List<ServiceA> services = c.getAll(ServiceA.class);
+        assertEquals(2, services.size());
+        assertTrue(services.get(0) instanceof ServiceB);
+        assertTrue(services.get(1) instanceof ServiceL);
+        assertSame(services, c.getAll(ServiceA.class));
+        assertThrows(UnsupportedOperationException.class, () -> services.add(new ServiceL()));
+
+        assertSame(services, c.createChild().getAll(ServiceA.class));
+        assertTrue(c.getAll(ServiceC.class).isEmpty());
+        assertFalse(c.existsKey(ServiceA.class));
+    }
+
+    @Test
+    public void getMany() {
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+
+        Object[] objects = c.getMany(ServiceA.class, ServiceC.class, ServiceA.class);
+        assertEquals(3, objects.length);
+        assertSame(c.get(ServiceA.class), objects[0]);
+        assertSame(c.get(ServiceC.class), objects[1]);
+        assertSame(objects[0], objects[2]);
+    }
+
+    @Test
+    public void unresolvable() {
+        Container c = new Container();
+
+        assertFalse(c.tryGet(ServiceA.class).isPresent());
+        assertTrue(c.isUnresolvable(ServiceA.class));
+        assertFalse(c.existsKey(ServiceA.class));
+        UnresolvableTypeException e = assertThrows(UnresolvableTypeException.class, () -> c.get(ServiceA.class));
+        assertSame(e, assertThrows(UnresolvableTypeException.class, () -> c.get(ServiceA.class)));
+        assertEquals(0, e.getStackTrace().length);
+
+        assertSame(c.get(ServiceC.class), c.tryGet(ServiceC.class).get());
+        assertFalse(new Container(false).tryGet(ServiceC.class).isPresent());
+
+        // A class whose dependency can't be resolved is remembered until the next registration
+        assertFalse(c.tryGet(ServiceO.class).isPresent());
+        assertTrue(c.isUnresolvable(ServiceO.class));
+        assertFalse(c.existsKey(ServiceO.class));
+        assertThrows(UnresolvableTypeException.class, () -> c.get(ServiceO.class));
+
+        // The dependency defined by a child doesn't change the parent
+        Container child = c.createChild().addDefinition(ServiceA.class, ServiceB.class);
+        assertNotNull(child.get(ServiceO.class).getServiceA());
+        assertTrue(c.isUnresolvable(ServiceO.class));
+
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        assertFalse(c.isUnresolvable(ServiceA.class));
+        assertFalse(c.isUnresolvable(ServiceO.class));
+        assertTrue(c.tryGet(ServiceA.class).isPresent());
+        assertNotNull(c.get(ServiceO.class).getServiceA());
+    }
+
+    @Test
+    public void shutdown() {
+        Container c = new Container();
+        ServiceM serviceM = c.get(ServiceM.class);
+        ServiceN serviceN = c.get(ServiceN.class);
+        ServiceN supplied = new ServiceN();
+        Container child = c.createChild().addInstance(ServiceN.class, supplied);
+        child.get(ServiceM.class);
+
+        assertTrue(child.shutdown().isEmpty());
+        assertFalse(supplied.isDisposed());
+        assertFalse(serviceM.isClosed());
+
+        Map<Class<?>, Throwable> failures = c.shutdown();
+
+        assertTrue(failures.isEmpty());
+        assertTrue(serviceM.isClosed());
+        assertTrue(serviceM.isClosedBeforeServiceN());
+        assertTrue(serviceN.isDisposed());
+    }
+
+    @Test
+    public void shutdown_timeout() {
+        final CountDownLatch release = new CountDownLatch(1);
+        Container c = new Container();
+        c.addClosure(AutoCloseable.class, () -> (AutoCloseable) release::await);
+        c.get(AutoCloseable.class);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        Map<Class<?>, Throwable> failures = c.shutdown(executor, 100, TimeUnit.MILLISECONDS);
+        release.countDown();
+        executor.shutdown();
+
+        assertTrue(failures.get(AutoCloseable.class) instanceof TimeoutException);
+    }
+
+    @Test
+    public void singletonHitDoesNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addInstance(ServiceD.class, new ServiceD());
+        Container frozen = c.freeze();
+        long threadId = Thread.currentThread().getId();
+
+        for (Container container : Arrays.asList(c, frozen)) {
+            container.get(ServiceA.class);
+            container.get(ServiceD.class);
+
+            long before = threads.getThreadAllocatedBytes(threadId);
+
+            for (int i = 0; i < 100_000; i++) {
+                container.get(ServiceA.class);
+                container.get(ServiceD.class);
+            }
+
+            // Any allocation per call would be at least 16 bytes, so millions of bytes in total
+            assertTrue(threads.getThreadAllocatedBytes(threadId) - before < 10_000);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package mpstyle.jcontainer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mpstyle.jcontainer.dummy.ServiceA;
+import mpstyle.jcontainer.dummy.ServiceB;
+import mpstyle.jcontainer.dummy.ServiceC;
+import mpstyle.jcontainer.dummy.ServiceF;
+import mpstyle.jcontainer.dummy.ServiceL;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DefinitionWatcherTest {
+    @TempDir
+    File directory;
+
+    @Test
+    public void reload() throws Exception {
+        File file = new File(directory, "definitions.yml");
+        write(file, "mpstyle.jcontainer.dummy.ServiceA: mpstyle.jcontainer.dummy.ServiceB\n"
+                + "mpstyle.jcontainer.dummy.ServiceC: mpstyle.jcontainer.dummy.ServiceC\n");
+
+        Container c = new Container(false);
+
+        try (DefinitionWatcher watcher = DefinitionWatcher.watch(c, file)) {
+            assertTrue(c.get(ServiceA.class) instanceof ServiceB);
+            ServiceC serviceC = c.get(ServiceC.class);
+
+            write(file, "mpstyle.jcontainer.dummy.ServiceA: mpstyle.jcontainer.dummy.ServiceL\n"
+                    + "mpstyle.jcontainer.dummy.ServiceC: mpstyle.jcontainer.dummy.ServiceC\n");
+
+            for (int i = 0; i < 200 && watcher.getLoadCount() < 2; i++) {
+                Thread.sleep(50);
+            }
+
+            assertTrue(c.get(ServiceA.class) instanceof ServiceL);
+            assertSame(serviceC, c.get(ServiceC.class));
+        }
+    }
+
+    @Test
+    public void updateDefinitions() {
+        Container c = new Container(false);
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceC.class);
+        ServiceA serviceA = c.get(ServiceA.class);
+
+        c.updateDefinitions(Collections.<Class<?>, Class<?>>singletonMap(ServiceA.class, ServiceB.class),
+                Collections.<Class<?>>singleton(ServiceC.class));
+
+        assertSame(serviceA, c.get(ServiceA.class));
+        assertFalse(c.existsKey(ServiceC.class));
+    }
+
+    @Test
+    public void updateDefinitions_autoInstance() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                Container c = new Container();
+                Future<?> update = executor.submit(() -> c.updateDefinitions(
+                        Collections.<Class<?>, Class<?>>singletonMap(ServiceA.class, ServiceB.class),
+                        Collections.<Class<?>>emptySet()));
+                ServiceF serviceF = c.get(ServiceF.class);
+                update.get();
+
+                // The definition registered by the miss is not lost by the update
+                assertSame(serviceF, c.get(ServiceF.class));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -7,6 +7,8 @@ import mpstyle.jcontainer.dummy.ServiceA;
 import mpstyle.jcontainer.dummy.ServiceB;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class IniContainerTest {
@@ -23,4 +25,14 @@ public class IniContainerTest {
     assertTrue(serviceA != null);
     assertTrue(serviceA instanceof ServiceB);
   }
+
+  @Test
+  public void invalidEntries() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    File file = new File(classLoader.getResource("invalid-definitions.ini").getFile());
+
+    ContainerLoadException e = assertThrows(ContainerLoadException.class, () -> IniContainer.from(file));
+
+    assertEquals(2, e.getErrors().size());
+  }
 }
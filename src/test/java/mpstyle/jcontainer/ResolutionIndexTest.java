@@ -0,0 +1,105 @@
+package mpstyle.jcontainer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import mpstyle.jcontainer.dummy.ServiceA;
+import mpstyle.jcontainer.dummy.ServiceB;
+import mpstyle.jcontainer.dummy.ServiceC;
+import mpstyle.jcontainer.dummy.ServiceE;
+import mpstyle.jcontainer.dummy.ServiceH;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResolutionIndexTest {
+    @TempDir
+    File directory;
+
+    @Test
+    public void writeAndRead() throws Exception {
+        File index = new File(directory, "container.idx");
+
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceE.class);
+        c.addDefinition(ServiceH.class, false);
+        c.warmUp();
+        c.get(ServiceH.class);
+        c.writeIndex(index, "hash");
+
+        Container loaded = new Container(false);
+        assertTrue(loaded.readIndex(index, "hash"));
+
+        assertTrue(loaded.get(ServiceA.class) instanceof ServiceB);
+        assertNotNull(((ServiceB) loaded.get(ServiceA.class)).getServiceC());
+        assertNotNull(loaded.get(ServiceE.class).getServiceF());
+        assertNotNull(loaded.get(ServiceH.class));
+    }
+
+    @Test
+    public void writeAndRead_pool() throws Exception {
+        File index = new File(directory, "container.idx");
+
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addPooledDefinition(ServiceC.class, ServiceC.class, 2, PoolPolicy.BUILD);
+        c.get(ServiceA.class);
+        c.writeIndex(index, "hash");
+
+        // The pool is not written: it is registered again after reading the index
+        Container loaded = new Container(false);
+        assertTrue(loaded.readIndex(index, "hash"));
+        assertFalse(loaded.existsKey(ServiceC.class));
+
+        loaded.addPooledDefinition(ServiceC.class, ServiceC.class, 2, PoolPolicy.BUILD);
+
+        try (Pooled<ServiceC> pooled = loaded.borrow(ServiceC.class)) {
+            assertNotNull(pooled.get());
+        }
+
+        assertNotNull(((ServiceB) loaded.get(ServiceA.class)).getServiceC());
+    }
+
+    @Test
+    public void hashMismatch() throws Exception {
+        File index = new File(directory, "container.idx");
+
+        Container c = new Container();
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.get(ServiceA.class);
+        c.writeIndex(index, "hash");
+
+        Container loaded = new Container(false);
+        assertFalse(loaded.readIndex(index, "other"));
+        assertFalse(loaded.existsKey(ServiceA.class));
+        assertFalse(loaded.readIndex(new File(directory, "missing.idx"), "hash"));
+    }
+
+    @Test
+    public void hash() throws Exception {
+        File config = new File(directory, "definitions.yml");
+        Files.write(config.toPath(), "a: b".getBytes(StandardCharsets.UTF_8));
+        String first = ResolutionIndex.hash(config);
+
+        Files.write(config.toPath(), "a: c".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(first, ResolutionIndex.hash(config));
+    }
+
+    @Test
+    public void hash_classDirectory() throws Exception {
+        File classes = new File(directory, "classes");
+        File classFile = new File(classes, "mpstyle/Service.class");
+        assertTrue(classFile.getParentFile().mkdirs());
+        Files.write(classFile.toPath(), new byte[]{1});
+        String first = ResolutionIndex.hash(classes.getPath());
+
+        assertTrue(classFile.setLastModified(classFile.lastModified() - 10000));
+        assertNotEquals(first, ResolutionIndex.hash(classes.getPath()));
+    }
+}
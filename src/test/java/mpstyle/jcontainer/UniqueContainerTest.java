@@ -0,0 +1,40 @@
+package mpstyle.jcontainer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UniqueContainerTest {
+    @Test
+    public void globalContainer() {
+        Container container = UniqueContainer.getInstance();
+
+        assertSame(container, UniqueContainer.getInstance());
+        assertSame(container, UniqueContainer.getInstance(true));
+        assertThrows(IllegalStateException.class, () -> UniqueContainer.getInstance(false));
+    }
+
+    @Test
+    public void namedContainers() {
+        Container tenant = UniqueContainer.getInstance("tenant-a", false);
+
+        assertSame(tenant, UniqueContainer.getInstance("tenant-a"));
+        assertSame(tenant, UniqueContainer.find("tenant-a"));
+        assertNotSame(tenant, UniqueContainer.getInstance("tenant-b"));
+        assertThrows(IllegalStateException.class, () -> UniqueContainer.getInstance("tenant-a", true));
+        assertTrue(UniqueContainer.getNames().contains("tenant-a"));
+
+        assertFalse(UniqueContainer.register("tenant-a", new Container()));
+        assertSame(tenant, UniqueContainer.remove("tenant-a"));
+        assertNull(UniqueContainer.find("tenant-a"));
+        assertTrue(UniqueContainer.register("tenant-a", new Container()));
+
+        UniqueContainer.remove("tenant-a");
+        UniqueContainer.remove("tenant-b");
+    }
+}
@@ -6,7 +6,9 @@ import mpstyle.jcontainer.dummy.ServiceA;
 import mpstyle.jcontainer.dummy.ServiceB;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class YamlContainerTest {
@@ -23,4 +25,16 @@ public class YamlContainerTest {
         assertNotNull(serviceA);
         assertTrue(serviceA instanceof ServiceB);
     }
+
+    @Test
+    public void invalidEntries() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        File file = new File(classLoader.getResource("invalid-definitions.yml").getFile());
+
+        ContainerLoadException e = assertThrows(ContainerLoadException.class, () -> YamlContainer.from(file));
+
+        assertEquals(3, e.getErrors().size());
+        assertTrue(e.getErrors().get(0).startsWith("line 2: "));
+        assertTrue(e.getErrors().get(2).startsWith("line 4: "));
+    }
 }
@@ -0,0 +1,16 @@
+package mpstyle.jcontainer.dummy;
+
+import mpstyle.jcontainer.annotation.Inject;
+
+public class ServiceH {
+  public final ServiceC servicec;
+
+  public ServiceH() {
+    this.servicec = null;
+  }
+
+  @Inject
+  public ServiceH(ServiceC servicec) {
+    this.servicec = servicec;
+  }
+}
@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.dummy;
+
+public class ServiceI {
+  private final ServiceJ serviceJ;
+
+  public ServiceI(ServiceJ serviceJ) {
+    this.serviceJ = serviceJ;
+  }
+}
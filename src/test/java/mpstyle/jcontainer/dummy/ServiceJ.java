@@ -0,0 +1,9 @@
+package mpstyle.jcontainer.dummy;
+
+public class ServiceJ {
+  private final ServiceI serviceI;
+
+  public ServiceJ(ServiceI serviceI) {
+    this.serviceI = serviceI;
+  }
+}
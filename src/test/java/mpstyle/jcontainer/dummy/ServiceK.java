@@ -0,0 +1,32 @@
+package mpstyle.jcontainer.dummy;
+
+import mpstyle.jcontainer.Closure;
+import mpstyle.jcontainer.annotation.Inject;
+import mpstyle.jcontainer.annotation.Lazy;
+
+public class ServiceK {
+  private final Closure<ServiceC> serviceC;
+
+  @Inject
+  private Closure<ServiceF> serviceF;
+
+  @Inject
+  @Lazy
+  private ServiceA serviceA;
+
+  public ServiceK(Closure<ServiceC> serviceC) {
+    this.serviceC = serviceC;
+  }
+
+  public Closure<ServiceC> getServiceC() {
+    return serviceC;
+  }
+
+  public Closure<ServiceF> getServiceF() {
+    return serviceF;
+  }
+
+  public ServiceA getServiceA() {
+    return serviceA;
+  }
+}
@@ -0,0 +1,4 @@
+package mpstyle.jcontainer.dummy;
+
+public class ServiceL implements ServiceA {
+}
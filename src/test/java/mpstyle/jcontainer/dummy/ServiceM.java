@@ -0,0 +1,24 @@
+package mpstyle.jcontainer.dummy;
+
+public class ServiceM implements AutoCloseable {
+  private final ServiceN serviceN;
+  private boolean closed;
+  private boolean closedBeforeServiceN;
+
+  public ServiceM(ServiceN serviceN) {
+    this.serviceN = serviceN;
+  }
+
+  public void close() {
+    closedBeforeServiceN = !serviceN.isDisposed();
+    closed = true;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public boolean isClosedBeforeServiceN() {
+    return closedBeforeServiceN;
+  }
+}
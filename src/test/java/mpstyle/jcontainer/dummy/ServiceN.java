@@ -0,0 +1,16 @@
+package mpstyle.jcontainer.dummy;
+
+import mpstyle.jcontainer.annotation.Dispose;
+
+public class ServiceN {
+  private volatile boolean disposed;
+
+  @Dispose
+  void release() {
+    disposed = true;
+  }
+
+  public boolean isDisposed() {
+    return disposed;
+  }
+}
@@ -0,0 +1,13 @@
+package mpstyle.jcontainer.dummy;
+
+public class ServiceO {
+  private final ServiceA serviceA;
+
+  public ServiceO(ServiceA serviceA) {
+    this.serviceA = serviceA;
+  }
+
+  public ServiceA getServiceA() {
+    return serviceA;
+  }
+}
@@ -0,0 +1,16 @@
+package mpstyle.jcontainer.dummy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ServiceP {
+  public static final AtomicInteger ATTEMPTS = new AtomicInteger();
+  public static volatile boolean failing;
+
+  public ServiceP() {
+    ATTEMPTS.incrementAndGet();
+
+    if (failing) {
+      throw new IllegalStateException("ServiceP is not available");
+    }
+  }
+}
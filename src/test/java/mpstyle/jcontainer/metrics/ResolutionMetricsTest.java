@@ -0,0 +1,51 @@
+package mpstyle.jcontainer.metrics;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+import mpstyle.jcontainer.Container;
+import mpstyle.jcontainer.dummy.ServiceA;
+import mpstyle.jcontainer.dummy.ServiceB;
+import mpstyle.jcontainer.dummy.ServiceC;
+import mpstyle.jcontainer.dummy.ServiceG;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResolutionMetricsTest {
+    @Test
+    public void counters() throws Exception {
+        ResolutionMetrics metrics = new ResolutionMetrics();
+        Container c = new Container().setResolutionListener(metrics);
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceG.class, false);
+
+        c.get(ServiceA.class);
+        c.get(ServiceA.class);
+        c.get(ServiceA.class);
+        c.get(ServiceG.class);
+
+        assertEquals(3, metrics.getResolveCount(ServiceA.class));
+        assertEquals(2, metrics.getSingletonHitCount(ServiceA.class));
+        assertEquals(1, metrics.getSingletonMissCount(ServiceA.class));
+        assertEquals(1, metrics.getConstructionCount(ServiceG.class));
+        assertEquals(0, metrics.getSingletonMissCount(ServiceG.class));
+        assertEquals(1, metrics.getConstructionCount(ServiceC.class));
+        assertEquals(1, metrics.getSingletonHitCount(ServiceC.class));
+        assertEquals(1, metrics.getRejectedConstructorCount());
+        assertTrue(metrics.getConstructionTimePercentile(ServiceA.class, 99) > 0);
+        assertEquals(3, metrics.getMeanConstructionNanos().size());
+
+        ObjectName name = metrics.register("test");
+        try {
+            assertEquals(6L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ResolveCount"));
+        } finally {
+            metrics.unregister(name);
+        }
+
+        metrics.reset();
+        assertFalse(metrics.getResolveCount() > 0);
+    }
+}
@@ -0,0 +1,74 @@
+package mpstyle.jcontainer.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mpstyle.jcontainer.Container;
+import mpstyle.jcontainer.dummy.ServiceA;
+import mpstyle.jcontainer.dummy.ServiceB;
+import mpstyle.jcontainer.dummy.ServiceC;
+import mpstyle.jcontainer.dummy.ServiceG;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResolutionTracerTest {
+    @Test
+    public void tree() {
+        ResolutionTracer tracer = new ResolutionTracer();
+        Container c = new Container().setResolutionListener(tracer);
+        c.addDefinition(ServiceA.class, ServiceB.class);
+
+        c.get(ServiceA.class);
+        c.get(ServiceG.class);
+
+        List<ResolutionTracer.Node> roots = tracer.getRoots();
+        assertEquals(2, roots.size());
+
+        ResolutionTracer.Node serviceA = roots.get(0);
+        assertSame(ServiceA.class, serviceA.getKey());
+        assertNotNull(serviceA.getConstructor());
+        assertSame(ServiceC.class, serviceA.getChildren().get(0).getKey());
+        assertTrue(serviceA.getInclusiveNanos() >= serviceA.getExclusiveNanos());
+
+        ResolutionTracer.Node serviceG = roots.get(1);
+        assertEquals(1, serviceG.getRejectedConstructors().size());
+        assertTrue(serviceG.getChildren().get(0).isHit());
+
+        assertTrue(tracer.toJson().startsWith("[{\"key\":\"mpstyle.jcontainer.dummy.ServiceA\""));
+        assertTrue(tracer.toCollapsedStacks().contains("mpstyle.jcontainer.dummy.ServiceA;mpstyle.jcontainer.dummy.ServiceC "));
+        // Both ServiceA and ServiceG depend on ServiceC
+        List<ResolutionTracer.Node> path = tracer.getCriticalPath();
+        assertEquals(2, path.size());
+        assertSame(ServiceC.class, path.get(1).getKey());
+        assertTrue(tracer.getCriticalPathSummary().startsWith("Constructions: 3,"));
+    }
+
+    @Test
+    public void criticalPath_warmUp() {
+        ResolutionTracer tracer = new ResolutionTracer();
+        Container c = new Container().setResolutionListener(tracer);
+        c.addDefinition(ServiceA.class, ServiceB.class);
+        c.addDefinition(ServiceC.class);
+
+        assertTrue(c.warmUp().isEmpty());
+
+        // Every singleton is built by its own task: the path follows the hit of ServiceC during ServiceA
+        assertEquals(2, tracer.getRoots().size());
+        assertEquals(Arrays.asList(ServiceA.class, ServiceC.class), keys(tracer.getCriticalPath()));
+    }
+
+    private static List<Class<?>> keys(List<ResolutionTracer.Node> nodes) {
+        List<Class<?>> keys = new ArrayList<Class<?>>();
+
+        for (ResolutionTracer.Node node : nodes) {
+            keys.add(node.getKey());
+        }
+
+        return keys;
+    }
+}
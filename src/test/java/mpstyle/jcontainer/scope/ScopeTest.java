@@ -0,0 +1,96 @@
+package mpstyle.jcontainer.scope;
+
+import mpstyle.jcontainer.Container;
+import mpstyle.jcontainer.dummy.DummyClosure;
+import mpstyle.jcontainer.dummy.ServiceA;
+import mpstyle.jcontainer.dummy.ServiceC;
+import mpstyle.jcontainer.dummy.ServiceE;
+import mpstyle.jcontainer.dummy.ServiceF;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScopeTest {
+    @Test
+    public void threadScope() throws Exception {
+        Container c = new Container();
+        c.addDefinition(ServiceC.class, ServiceC.class, new ThreadScope());
+
+        ServiceC serviceC = c.get(ServiceC.class);
+        assertSame(serviceC, c.get(ServiceC.class));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ServiceC other = executor.submit(() -> c.get(ServiceC.class)).get();
+        executor.shutdown();
+
+        assertNotNull(other);
+        assertNotSame(serviceC, other);
+    }
+
+    @Test
+    public void requestScope() {
+        RequestScope scope = new RequestScope();
+        Container c = new Container();
+        c.addDefinition(ServiceE.class, ServiceE.class, scope);
+        c.addClosure(ServiceA.class, DummyClosure.class, scope);
+
+        assertThrows(RuntimeException.class, () -> c.get(ServiceE.class));
+
+        ServiceE first;
+        try (RequestScope.Request request = scope.open()) {
+            assertTrue(scope.isOpen());
+            first = c.get(ServiceE.class);
+            assertSame(first, c.get(ServiceE.class));
+            assertNotNull(first.getServiceF());
+            assertSame(c.get(ServiceA.class), c.get(ServiceA.class));
+            assertThrows(IllegalStateException.class, scope::open);
+        }
+
+        assertFalse(scope.isOpen());
+
+        try (RequestScope.Request request = scope.open()) {
+            assertNotSame(first, c.get(ServiceE.class));
+        }
+    }
+
+    @Test
+    public void reclaimableScope() {
+        ReclaimableScope scope = new ReclaimableScope(ReclaimableScope.Strength.SOFT, 1);
+        Container c = new Container();
+        c.addDefinition(ServiceC.class, ServiceC.class, scope);
+        c.addDefinition(ServiceF.class, ServiceF.class, scope);
+
+        ServiceC serviceC = c.get(ServiceC.class);
+        assertSame(serviceC, c.get(ServiceC.class));
+        assertEquals(1, scope.getMissCount());
+        assertEquals(1, scope.getHitCount());
+
+        c.get(ServiceF.class);
+        assertEquals(1, scope.getEvictionCount());
+        assertNotSame(serviceC, c.get(ServiceC.class));
+        assertEquals(3, scope.getMissCount());
+
+        ServiceC rebuilt = c.get(ServiceC.class);
+        scope.clear();
+        assertNotSame(rebuilt, c.get(ServiceC.class));
+        assertEquals(0, scope.getCollectionCount());
+
+        ReclaimableScope unbounded = new ReclaimableScope();
+        c.addDefinition(ServiceE.class, ServiceE.class, unbounded);
+        ServiceE serviceE = c.get(ServiceE.class);
+        assertSame(serviceE, c.get(ServiceE.class));
+        unbounded.clear();
+        assertNotSame(serviceE, c.get(ServiceE.class));
+
+        assertThrows(IllegalArgumentException.class, () -> new ReclaimableScope(ReclaimableScope.Strength.WEAK, -1));
+    }
+}